@@ -7,6 +7,7 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
+import android.content.res.AssetFileDescriptor;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.util.Log;
@@ -14,6 +15,8 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.PopupMenu;
 
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
@@ -26,6 +29,7 @@ import com.google.firebase.analytics.FirebaseAnalytics;
 
 import net.st_wet.model.Cell;
 import net.st_wet.model.Cell.E_STATUS;
+import net.st_wet.model.OpeningBook;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +40,7 @@ import android.widget.TextView;
 public class MainActivity extends AppCompatActivity
 {
     private static final int REQUEST_CODE = 1;
+    private static final String OPENING_BOOK_ASSET = "book.bin";  // 定石（圧縮せずに入れる。build.gradle の noCompress）
 
     private AdView mAdView;
     private FirebaseAnalytics mFirebaseAnalytics;
@@ -77,6 +82,10 @@ public class MainActivity extends AppCompatActivity
                         isNeedRestart = true;
                     }
 
+                    // スレッド数は探索の開始時に反映されるので、リスタートは不要
+                    int searchThreads = data.getIntExtra("searchThreads", 0);
+                    othelloView.setSearchThreads(resolveSearchThreads(searchThreads));
+
                     boolean isFirst = data.getBooleanExtra("first", true);
                     if (othelloView.getFirst() != isFirst) {
                         if (isFirst) {
@@ -120,6 +129,7 @@ public class MainActivity extends AppCompatActivity
                     SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
                     SharedPreferences.Editor editor = pref.edit();
                     editor.putInt("level", level);
+                    editor.putInt("searchThreads", searchThreads);
                     editor.putBoolean("first", isFirst);
                     editor.putInt("handicapTarget", handicapTarget);
                     editor.putInt("handicapCount", handicapCount);
@@ -238,6 +248,22 @@ public class MainActivity extends AppCompatActivity
             updateScoreDisplay(blackCount, whiteCount, currentTurn);
         });
 
+        othelloView.setOpeningBook(openOpeningBook());
+    }
+
+    /**
+     * assets の定石をメモリマップして開く（読み込みはしない）
+     * @return 定石。なければ null（定石なしで探索する）
+     */
+    private OpeningBook openOpeningBook() {
+        try (AssetFileDescriptor fd = getAssets().openFd(OPENING_BOOK_ASSET);
+             FileInputStream in = fd.createInputStream()) {
+            // マップした領域はファイルを閉じても使える
+            return OpeningBook.map(in.getChannel(), fd.getStartOffset(), fd.getLength());
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w("MainActivity", "opening book not available", e);
+            return null;
+        }
     }
 
     private void updateScoreDisplay(int blackCount, int whiteCount, E_STATUS currentTurn) {
@@ -394,6 +420,16 @@ public class MainActivity extends AppCompatActivity
         return data;
     }
 
+    /**
+     * 設定のスレッド数（0 = 自動）を実際のスレッド数にする
+     */
+    private int resolveSearchThreads(int searchThreads) {
+        if (searchThreads <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return searchThreads;
+    }
+
     public void setting() {
         Intent intent = new Intent(MainActivity.this, SettingActivity.class);
 
@@ -409,6 +445,9 @@ public class MainActivity extends AppCompatActivity
         boolean isReturnable = pref.getBoolean("returnable", false);
         intent.putExtra("returnable", isReturnable);
 
+        int searchThreads = pref.getInt("searchThreads", 0);
+        intent.putExtra("searchThreads", searchThreads);
+
         int handicapTarget = pref.getInt("handicapTarget", 0);
         intent.putExtra("handicapTarget", handicapTarget);
 
@@ -452,6 +491,9 @@ public class MainActivity extends AppCompatActivity
 
         OthelloView othelloView = findViewById(R.id.othelloView);
 
+        // 画面を離れている間は CPU に考えさせない（CPU の手番なら戻ってから考え直す）
+        othelloView.pauseCpu();
+
         // アクティビティが終了する場合のみ、中断フラグを確認
         if (isFinishing()) {
             if (mShouldSaveOnPause) {
@@ -499,6 +541,7 @@ public class MainActivity extends AppCompatActivity
         String history = pref.getString("history", null);
         boolean bUseBack = pref.getBoolean("useBack", false);
         int level = pref.getInt("level", 2);
+        int searchThreads = pref.getInt("searchThreads", 0);
         boolean isFirst = pref.getBoolean("first", true);
         int handicapTarget = pref.getInt("handicapTarget", 0);
         int handicapCount = pref.getInt("handicapCount", 1);
@@ -508,9 +551,11 @@ public class MainActivity extends AppCompatActivity
         boolean isSoundEnabled = pref.getBoolean("soundEnabled", true);
 
         OthelloView othelloView = findViewById(R.id.othelloView);
+        othelloView.resumeCpu();
 
         int depth = level * 2 - 1;
         othelloView.setDepth(depth);
+        othelloView.setSearchThreads(resolveSearchThreads(searchThreads));
 
         if (isFirst) {
             othelloView.setTurn(Cell.E_STATUS.Black);
@@ -7,6 +7,7 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.media.AudioAttributes;
 import android.media.SoundPool;
 import android.os.Handler;
@@ -21,6 +22,12 @@ import android.widget.Toast;
 import net.st_wet.model.Board;
 import net.st_wet.model.Cell;
 import net.st_wet.model.Cell.E_STATUS;
+import net.st_wet.model.MoveList;
+import net.st_wet.model.OpeningBook;
+import net.st_wet.model.Position;
+import net.st_wet.model.SearchEngine;
+import net.st_wet.model.Strength;
+import net.st_wet.model.TimeManager;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -31,7 +38,8 @@ public class OthelloView extends View
     private Board mBoard = new Board();
     private Handler mHandler = new Handler();
     private Paint mPaint = new Paint();
-    private boolean mLock = false;
+    private RectF mStoneRect = new RectF();
+    private volatile boolean mLock = false;
     private E_STATUS mMyTurn = E_STATUS.None;
     private int mR = 0;
     private int mC = 0;
@@ -47,8 +55,9 @@ public class OthelloView extends View
     private int mHandicapTarget = 0;  // 0=なし, 1=自分, 2=相手
     private int mHandicapCount = 1;   // 1〜4
     private boolean mRandomMode = false;  // ランダムモード
-    private String mInitialBoardState = null;  // 初期盤面状態（待った用）
+    private Position mInitialPosition = null;  // 初期局面（待った用）
     private volatile int mGameVersion = 0;  // ゲームバージョン（リスタート検出用）
+    private volatile boolean mCpuPaused = false;  // 画面を離れている間は CPU を止める
 
     // オンライン対戦用
     private boolean mOnlineMode = false;
@@ -133,7 +142,11 @@ public class OthelloView extends View
                     mPaint.setColor(Color.WHITE);
                 }
 
-                canvas.drawOval(cell.getStoneRectF(), mPaint);
+                float halfWidth = cell.getStoneHalfWidth();
+                float halfHeight = cell.getStoneHalfHeight();
+                mStoneRect.set(cell.getCx() - halfWidth, cell.getCy() - halfHeight,
+                        cell.getCx() + halfWidth, cell.getCy() + halfHeight);
+                canvas.drawOval(mStoneRect, mPaint);
             }
         }
 
@@ -220,6 +233,10 @@ public class OthelloView extends View
                      return false;
                  }
                  mLock = true;
+                 // CPU の先読みは、打つ手が決まったところで止める
+                 if (mCpu != null) {
+                     mCpu.stopPondering();
+                 }
 
                  new Thread(new Runnable() {
                      @Override
@@ -264,6 +281,8 @@ public class OthelloView extends View
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        // アニメーション後に盤面（ビットボード）へ反映
+        mBoard.turnOver(mBoard.getTurn(), mR, mC, false);
 
         mBoard.countCell();
 
@@ -340,9 +359,33 @@ public class OthelloView extends View
         }
     }
 
-    public void restart() {
-        // ゲームバージョンをインクリメント（CPUの古い思考結果を無効化）
+    /**
+     * CPU の思考・先読みを打ち切る（リスタート・待った・画面を離れたとき）
+     * ゲームバージョンをインクリメントするので、打ち切った思考の結果は使われない
+     * 探索は数ミリ秒で止まり、CPU の手番なら次のポーリングで考え直す
+     */
+    public void cancelCpuThinking() {
         mGameVersion++;
+        if (mCpu != null) {
+            mCpu.cancel();
+        }
+    }
+
+    /**
+     * 画面を離れるとき：CPU の思考を打ち切り、戻るまで考えさせない
+     */
+    public void pauseCpu() {
+        mCpuPaused = true;
+        cancelCpuThinking();
+    }
+
+    public void resumeCpu() {
+        mCpuPaused = false;
+    }
+
+    public void restart() {
+        // CPUの思考を打ち切る（古い思考結果も無効化）
+        cancelCpuThinking();
         // ロックを解除（CPUの思考中でもリスタート後は操作可能にする）
         mLock = false;
 
@@ -362,7 +405,7 @@ public class OthelloView extends View
             notifyScoreChanged();
         }
         // 初期盤面を保存（待った機能用）
-        mInitialBoardState = getCellsStatus();
+        mInitialPosition = mBoard.getPosition();
         mHistory = "";
         mbUseBack = false;
         invalidate();
@@ -379,7 +422,7 @@ public class OthelloView extends View
         final int MIN_PLAYER_MOVES = 2;  // プレイヤーの最低着手可能数
 
         int bestScore = Integer.MAX_VALUE;
-        Cell[][] bestCells = null;
+        Position bestPosition = null;
 
         for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
             // 通常の初期配置でリセット（中央4マス）
@@ -418,7 +461,7 @@ public class OthelloView extends View
             }
 
             // プレイヤーが複数箇所に打てる状態か確認
-            int playerMoves = mBoard.getCanPutRCs(mMyTurn).size();
+            int playerMoves = Long.bitCount(mBoard.getMobility(mMyTurn));
 
             if (playerMoves < MIN_PLAYER_MOVES) {
                 // プレイヤーの選択肢が少ない場合は再試行
@@ -432,7 +475,7 @@ public class OthelloView extends View
             // より公平な局面を記録
             if (absScore < bestScore) {
                 bestScore = absScore;
-                bestCells = copyCells(mBoard.getCells());
+                bestPosition = mBoard.getPosition();
             }
 
             // 十分公平なら終了
@@ -442,8 +485,8 @@ public class OthelloView extends View
         }
 
         // 最も公平だった局面を適用
-        if (bestCells != null) {
-            applyCells(bestCells);
+        if (bestPosition != null) {
+            mBoard.setPosition(bestPosition);
         }
 
         // 通常通り黒から開始
@@ -477,32 +520,6 @@ public class OthelloView extends View
         return null;
     }
 
-    /**
-     * セルの状態をコピー
-     */
-    private Cell[][] copyCells(Cell[][] cells) {
-        Cell[][] copy = new Cell[Board.ROWS][Board.COLS];
-        for (int r = 0; r < Board.ROWS; r++) {
-            for (int c = 0; c < Board.COLS; c++) {
-                copy[r][c] = new Cell();
-                copy[r][c].setStatus(cells[r][c].getStatus());
-            }
-        }
-        return copy;
-    }
-
-    /**
-     * コピーしたセルの状態を適用
-     */
-    private void applyCells(Cell[][] savedCells) {
-        Cell[][] cells = mBoard.getCells();
-        for (int r = 0; r < Board.ROWS; r++) {
-            for (int c = 0; c < Board.COLS; c++) {
-                cells[r][c].setStatus(savedCells[r][c].getStatus());
-            }
-        }
-    }
-
     public void gameSet() {
         mBoard.endTurn();
     }
@@ -567,17 +584,7 @@ public class OthelloView extends View
     }
 
     public String getCellsStatus() {
-        StringBuilder sb = new StringBuilder();
-
-        Cell[][] cells = mBoard.getCells();
-
-        for (int r = 0; r < mBoard.ROWS; r++) {
-            for (int c = 0; c < mBoard.ROWS; c++) {
-                sb.append(cells[r][c].statusToString());
-            }
-        }
-
-        return sb.toString();
+        return mBoard.getPosition().format();
     }
 
     /**
@@ -779,6 +786,8 @@ public class OthelloView extends View
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        // アニメーション後に盤面（ビットボード）へ反映
+        mBoard.turnOver(mBoard.getTurn(), mR, mC, false);
 
         mBoard.countCell();
         notifyScoreChanged();
@@ -795,31 +804,19 @@ public class OthelloView extends View
      * オンライン対戦用：盤面状態を適用
      */
     public void applyBoardState(String boardState, String currentTurn) {
-        E_STATUS[] statuses = E_STATUS.values();
-
-        // 現在のターンを設定
+        // 現在のターン
+        E_STATUS turn;
         if ("black".equals(currentTurn)) {
-            mBoard.setTurn(E_STATUS.Black);
+            turn = E_STATUS.Black;
         } else if ("white".equals(currentTurn)) {
-            mBoard.setTurn(E_STATUS.White);
+            turn = E_STATUS.White;
         } else {
-            mBoard.setTurn(E_STATUS.None);
+            turn = E_STATUS.None;
         }
 
         // 盤面を適用
-        Cell[][] cells = mBoard.getCells();
-        int i = 0;
-        for (int r = 0; r < mBoard.ROWS; r++) {
-            for (int c = 0; c < mBoard.COLS; c++) {
-                String s_sts = boardState.substring(i, i + 1);
-                int i_sts = Integer.parseInt(s_sts);
-                E_STATUS e_sts = statuses[i_sts];
-                cells[r][c].setStatus(e_sts);
-                i++;
-            }
-        }
+        mBoard.setPosition(Position.parse(boardState, turn));
 
-        mBoard.countCell();
         notifyScoreChanged();
         invalidate();
     }
@@ -901,6 +898,9 @@ public class OthelloView extends View
             return;
         }
 
+        // CPUの思考・先読みは戻す前の局面のものなので打ち切る
+        cancelCpuThinking();
+
         E_STATUS[] statuses = E_STATUS.values();
 
         if (mHistory != "") {
@@ -927,18 +927,8 @@ public class OthelloView extends View
         E_STATUS[] statuses = E_STATUS.values();
 
         // 保存された初期盤面から復元（ランダムモード・ハンデ対応）
-        if (mInitialBoardState != null) {
-            Cell[][] cells = mBoard.getCells();
-            int idx = 0;
-            for (int r = 0; r < mBoard.ROWS; r++) {
-                for (int c = 0; c < mBoard.COLS; c++) {
-                    String s_sts = mInitialBoardState.substring(idx, idx + 1);
-                    int i_sts = Integer.parseInt(s_sts);
-                    cells[r][c].setStatus(statuses[i_sts]);
-                    idx++;
-                }
-            }
-            mBoard.setTurn(E_STATUS.Black);  // 初期ターンは黒
+        if (mInitialPosition != null) {
+            mBoard.setPosition(mInitialPosition.withTurn(E_STATUS.Black));  // 初期ターンは黒
         } else {
             mBoard.reset();
         }
@@ -963,24 +953,11 @@ public class OthelloView extends View
 
     public void restore(int current_turn, String cellsStatus, String history) {
         E_STATUS[] statuses = E_STATUS.values();
-        this.mBoard.setTurn(statuses[current_turn]);
 
         this.mHistory = history;
 
-        Cell[][] cells = mBoard.getCells();
-
-        int i = 0;
-        for (int r = 0; r < mBoard.ROWS; r++) {
-            for (int c = 0; c < mBoard.COLS; c++) {
-                String s_sts = cellsStatus.substring(i, i + 1);
-                int i_sts = Integer.parseInt(s_sts);
-                E_STATUS e_sts = statuses[i_sts];
-                cells[r][c].setStatus(e_sts);
-                i++;
-            }
-        }
+        mBoard.setPosition(Position.parse(cellsStatus, statuses[current_turn]));
 
-        mBoard.countCell();
         notifyScoreChanged();
 
         invalidate();
@@ -990,45 +967,95 @@ public class OthelloView extends View
         return this.mDepth;
     }
 
+    /**
+     * CPU の置換表の大きさを変える（MB）
+     */
+    public void setHashTableSize(int sizeMb) {
+        if (mCpu != null) {
+            mCpu.setHashTableSize(sizeMb);
+        }
+    }
+
+    /**
+     * CPU（Lv.3）の定石（null なら定石なし）
+     */
+    public void setOpeningBook(OpeningBook book) {
+        if (mCpu != null) {
+            mCpu.setOpeningBook(book);
+        }
+    }
+
+    /**
+     * CPU（Lv.3）の探索スレッド数を変える（1 なら並列化しない）
+     */
+    public void setSearchThreads(int threads) {
+        if (mCpu != null) {
+            mCpu.setSearchThreads(threads);
+        }
+    }
+
     public void setDepth(int depth) {
         this.mDepth = depth;
     }
 
+    /**
+     * CPU の強さ（mDepth は Lv.1〜Lv.3 で 1, 3, 5）
+     */
+    private Strength getStrength() {
+        return Strength.forLevel((this.mDepth + 1) / 2);
+    }
+
     class Cpu extends Thread
     {
-        public static final int UNDECIDED_SCORE = 99999;
-        public static final int INF = 100000000;
-
-        // Lv.3用定数
-        private static final int LV3_NORMAL_DEPTH = 7;           // 序盤・中盤の探索深さ
-        private static final int LV3_ENDGAME_THRESHOLD = 12;     // 終盤完全読みの閾値（残り手数）
-        private static final long LV3_TIME_LIMIT_MS = 8000;      // 思考時間上限（8秒）
-
-        // Lv.3用評価関数の重み
-        private static final int WEIGHT_POSITION = 10;           // 位置評価の重み
-        private static final int WEIGHT_MOBILITY = 80;           // 着手可能数の重み
-        private static final int WEIGHT_STABLE = 100;            // 安定石の重み
-        private static final int WEIGHT_CORNER = 500;            // 角の重み
-        private static final int WEIGHT_X_SQUARE = -150;         // X打ち（角の斜め隣）のペナルティ
-        private static final int WEIGHT_C_SQUARE = -50;          // C打ち（角の隣）のペナルティ
-
-        // 次善手を選ぶ確率（%）
-        private static final int LV2_SUBOPTIMAL_RATE = 10;       // Lv.2: 10%
-        private static final int LV3_SUBOPTIMAL_RATE = 5;        // Lv.3: 5%
-
-        // Lv.3用：思考開始時刻とタイムアウトフラグ
-        private long thinkStartTime;
-        private volatile boolean isTimeout;
-
-        // Lv.3用：反復深化で見つけた最善手を保存
-        private int bestMoveR;
-        private int bestMoveC;
+        private static final long MIN_MOVE_DELAY_MS = 300;       // 相手の石が返り終わってから打つまでの最短の間
+        private static final long PONDER_TIME_LIMIT_MS = 60000;  // 相手の手番の間に先読みする時間の上限
+
+        // 定石手は、最善の定石手からこの差（石差 1）までを最善手と同じに扱う
+        private static final int BOOK_SCORE_MARGIN = 100;
 
         private E_STATUS my_turn;
         private Random cpuRandom = new Random();  // ランダム要素用
 
+        // 着手リスト
+        private final MoveList rootMoves = new MoveList();
+        private final MoveList otherMoves = new MoveList();
+        private final MoveList secondBestMoves = new MoveList();
+        private final MoveList ponderMoves = new MoveList();
+        private final MoveList bookMoves = new MoveList();
+
+        // 定石（なければ null）
+        private volatile OpeningBook book;
+
+        // 探索エンジン（全レベル共通。置換表は対局中使い続ける）
+        private final SearchEngine engine = new SearchEngine();
+        // 並列に探索するときのスレッド数（強さが並列を許すときだけ使う）
+        private volatile int searchThreads = Runtime.getRuntime().availableProcessors();
+        // 最後に先読みを最後まで終えた局面（同じ局面を読み直さない）
+        private long ponderedHash;
+        private boolean hasPondered = false;
+
         public Cpu(E_STATUS my_turn) {
             this.my_turn = my_turn;
+            // 並列にするときは Lazy SMP（置換表を共有して同じ反復深化を並べる）
+            engine.setParallelMode(SearchEngine.ParallelMode.LAZY_SMP);
+        }
+
+        /**
+         * 置換表の大きさを変える（MB）
+         */
+        public void setHashTableSize(int sizeMb) {
+            engine.setHashTableSize(sizeMb);
+        }
+
+        public void setOpeningBook(OpeningBook book) {
+            this.book = book;
+        }
+
+        /**
+         * 並列に探索するときのスレッド数を変える（1 なら並列化しない）。次の思考から使う
+         */
+        public void setSearchThreads(int threads) {
+            this.searchThreads = threads;
         }
 
         public void setTurn(E_STATUS my_turn) {
@@ -1038,12 +1065,28 @@ public class OthelloView extends View
             return this.my_turn;
         }
 
+        /**
+         * 先読みを止める（人の打つ手が決まったときに UI スレッドから呼ぶ）
+         * CPU の手番の思考中には呼ばれない
+         */
+        public void stopPondering() {
+            engine.stop();
+        }
+
+        /**
+         * 思考・先読みを打ち切る（別のスレッドから呼べる）
+         * 探索はノードごとに止める合図を見ているので、すぐに戻る
+         */
+        public void cancel() {
+            engine.stop();
+        }
+
         /**
          * 局面評価（公開メソッド）
          * ランダムモードの公平性チェック用
          */
         public int evaluatePosition(Board board, E_STATUS turn) {
-            return evalPositionLv3(board, turn);
+            return engine.evaluate(board, turn);
         }
 
         @Override
@@ -1056,13 +1099,18 @@ public class OthelloView extends View
                     e.printStackTrace();
                 }
 
-                // オンラインモードではCPUは動作しない
-                if (mOnlineMode) {
+                // オンラインモードと、画面を離れている間はCPUは動作しない
+                if (mOnlineMode || mCpuPaused) {
                     continue;
                 }
 
-                // 自分のターンでなければ何もしない
+                Strength strength = getStrength();
+
+                // 自分のターンでなければ何もしない（Lv.3 は相手の手番の間に先読みする）
                 if (mBoard.getTurn() != this.my_turn) {
+                    if (strength.ponder()) {
+                        ponder(strength);
+                    }
                     continue;
                 }
 
@@ -1077,48 +1125,14 @@ public class OthelloView extends View
 
                 long start = System.currentTimeMillis();
 
-                if (mDepth == 1) {
-                    // Lv.1: 一番多くひっくり返せる場所を選びがち（初心者っぽい戦略）
-                    ArrayList<HashMap> list = mBoard.getCanPutRCs(this.my_turn);
-                    if (list.size() > 0) {
-                        Random random = new Random();
-                        if (random.nextInt(100) < 70) {
-                            // 70%: 一番多く取れる場所を選ぶ
-                            int maxCount = -1;
-                            for (HashMap<String, Integer> map : list) {
-                                int r = map.get("r");
-                                int c = map.get("c");
-                                int count = mBoard.turnOverCells(this.my_turn, r, c, true).size();
-                                if (count > maxCount) {
-                                    maxCount = count;
-                                    mR = r;
-                                    mC = c;
-                                }
-                            }
-                        } else {
-                            // 30%: ランダムに選ぶ
-                            int index = random.nextInt(list.size());
-                            HashMap<String, Integer> map = list.get(index);
-                            mR = map.get("r");
-                            mC = map.get("c");
-                        }
-                    }
-                } else if (mDepth == 5) {
-                    // Lv.3: 超強化AI
-                    thinkLv3(mBoard);
-                } else {
-                    // Lv.2: Alpha-Beta探索（ランダム要素付き）
-                    thinkLv2(mBoard);
-                }
+                think(mBoard, gameVersionAtStart, strength);
 
-                // 考えている感。。
-                while (true) {
-                    if (System.currentTimeMillis() - start > 1000) {
-                        break;
-                    }
+                // すぐに決まった手でも、相手の手のすぐあとに打たないよう少しだけ間をあける
+                long wait = MIN_MOVE_DELAY_MS - (System.currentTimeMillis() - start);
+                if (wait > 0) {
                     try {
-                        Thread.sleep(100);
-                    } catch (Exception e) {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
                         e.printStackTrace();
                     }
                 }
@@ -1136,789 +1150,191 @@ public class OthelloView extends View
         }
 
         /**
-         * Lv.2専用の思考ルーチン
-         * - Alpha-Beta探索
+         * 思考ルーチン（全レベル共通。読む深さ・評価関数・揺らぎは強さで変える）
+         * - randomRate % の確率で読まずにランダムに打つ（Lv.1）
+         * - 定石にある局面は定石手から選ぶ
+         * - 反復深化（前回の最善手から、前回の評価値のまわりの窓で探索）
+         * - 中盤は Multi-ProbCut で見込みのない枝を浅い探索で打ち切り、深く読む（Lv.3 の評価関数のときだけ）
+         * - 終盤は勝敗の読み切り → 完全読み
+         * - 相手の手番の間に読んだ応手（置換表）から始める
+         * - 局面ごとの時間配分（Lv.3。段階と合法手の数で決め、最善手が安定すれば早めに切り上げる。時間切れなら最後に完了した深さの結果を使う）
          * - 同じ評価値の手はランダムに選択
-         * - 10%の確率で次善手を選択
+         * - suboptimalRate % の確率で次善手を選択
          */
-        private void thinkLv2(Board board) {
-            ArrayList<HashMap> moves = board.getCanPutRCs(this.my_turn);
+        private void think(Board board, int gameVersion, Strength strength) {
+            MoveList moves = rootMoves;
+            board.getMoves(this.my_turn, moves);
             if (moves.size() == 0) {
                 return;
             }
 
+            // 打てる手が1つだけならそれを選ぶ
             if (moves.size() == 1) {
-                HashMap<String, Integer> map = moves.get(0);
-                mR = map.get("r");
-                mC = map.get("c");
+                mR = moves.getR(0);
+                mC = moves.getC(0);
                 return;
             }
 
-            // 全ての手のスコアを計算
-            ArrayList<int[]> moveScores = new ArrayList<>();  // [r, c, score]
-            for (HashMap<String, Integer> map : moves) {
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(this.my_turn, r, c, false);
-                newBoard.changeTurn();
-
-                int score = -alphaBetaForLv2(newBoard, mDepth - 1, -INF, INF);
-                moveScores.add(new int[]{r, c, score});
-            }
-
-            // スコアでソート（降順）
-            moveScores.sort((a, b) -> b[2] - a[2]);
-
-            // 最善手と同スコアの手をリストアップ
-            int bestScore = moveScores.get(0)[2];
-            ArrayList<int[]> bestMoves = new ArrayList<>();
-            ArrayList<int[]> secondBestMoves = new ArrayList<>();
-            int secondBestScore = Integer.MIN_VALUE;
-
-            for (int[] ms : moveScores) {
-                if (ms[2] == bestScore) {
-                    bestMoves.add(ms);
-                } else if (ms[2] > secondBestScore) {
-                    secondBestScore = ms[2];
-                    secondBestMoves.clear();
-                    secondBestMoves.add(ms);
-                } else if (ms[2] == secondBestScore) {
-                    secondBestMoves.add(ms);
-                }
-            }
-
-            // 10%の確率で次善手を選択（次善手がある場合のみ）
-            int[] selectedMove;
-            if (secondBestMoves.size() > 0 && cpuRandom.nextInt(100) < LV2_SUBOPTIMAL_RATE) {
-                // 次善手からランダムに選択
-                selectedMove = secondBestMoves.get(cpuRandom.nextInt(secondBestMoves.size()));
-            } else {
-                // 最善手からランダムに選択
-                selectedMove = bestMoves.get(cpuRandom.nextInt(bestMoves.size()));
-            }
-
-            mR = selectedMove[0];
-            mC = selectedMove[1];
-        }
-
-        /**
-         * Lv.2用のAlpha-Beta探索（Negamax形式）
-         */
-        private int alphaBetaForLv2(Board board, int depth, int alpha, int beta) {
-            ArrayList<HashMap> moves = board.getCanPutRCs(board.getTurn());
-
-            if (moves.size() == 0 && !board.isCanPutAll(board.getOppositeTurn())) {
-                // ゲーム終了
-                board.countCell();
-                int myCount = board.getStatusCount(this.my_turn);
-                int oppCount = board.getStatusCount(Cell.getOppositeStatus(this.my_turn));
-                return (myCount - oppCount) * 1000;
-            }
-
-            if (depth == 0) {
-                return board.calcScore(this.my_turn);
-            }
-
-            if (moves.size() == 0) {
-                Board newBoard = board.clone();
-                newBoard.changeTurn();
-                return -alphaBetaForLv2(newBoard, depth, -beta, -alpha);
-            }
-
-            int bestScore = -INF;
-            for (HashMap<String, Integer> map : moves) {
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(newBoard.getTurn(), r, c, false);
-                newBoard.changeTurn();
-
-                int score = -alphaBetaForLv2(newBoard, depth - 1, -beta, -alpha);
-
-                if (score > bestScore) {
-                    bestScore = score;
-                }
-                if (score > alpha) {
-                    alpha = score;
-                }
-                if (alpha >= beta) {
-                    break;
-                }
-            }
-
-            return bestScore;
-        }
-
-        /**
-         * Lv.3専用の思考ルーチン
-         * - 終盤完全読み
-         * - 反復深化
-         * - 改善された評価関数
-         * - 時間制限付き探索
-         * - 同じ評価値の手はランダムに選択
-         * - 5%の確率で次善手を選択
-         */
-        private void thinkLv3(Board board) {
-            thinkStartTime = System.currentTimeMillis();
-            isTimeout = false;
-
-            ArrayList<HashMap> moves = board.getCanPutRCs(this.my_turn);
-            if (moves.size() == 0) {
+            // 読まずにランダムに打つ
+            if (cpuRandom.nextInt(100) < strength.getRandomRate()) {
+                int index = cpuRandom.nextInt(moves.size());
+                mR = moves.getR(index);
+                mC = moves.getC(index);
                 return;
             }
 
-            // 打てる手が1つだけならそれを選ぶ
-            if (moves.size() == 1) {
-                HashMap<String, Integer> map = moves.get(0);
-                mR = map.get("r");
-                mC = map.get("c");
+            // 定石にある局面は探索しない
+            if (strength.useBook() && selectBookMove(board, strength.getSuboptimalRate())) {
                 return;
             }
 
             // 空きマス数を計算
             int emptyCount = countEmpty(board);
 
-            // 全ての手のスコアを計算してランダム要素を適用
-            ArrayList<int[]> moveScores = new ArrayList<>();  // [r, c, score]
-            int searchDepth = (emptyCount <= LV3_ENDGAME_THRESHOLD) ? emptyCount : LV3_NORMAL_DEPTH;
-
-            for (HashMap<String, Integer> map : moves) {
-                if (checkTimeout()) break;
-
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(this.my_turn, r, c, false);
-                newBoard.changeTurn();
-
-                int score;
-                if (emptyCount <= LV3_ENDGAME_THRESHOLD) {
-                    score = -endgameSearch(newBoard, emptyCount - 1, -INF, INF, this.my_turn);
-                } else {
-                    int[] result = alphaBetaLv3(newBoard, searchDepth - 1, -INF, INF, false, this.my_turn);
-                    score = -result[0];
-                }
-                moveScores.add(new int[]{r, c, score});
-            }
-
-            if (moveScores.size() == 0) {
-                return;
-            }
-
-            // スコアでソート（降順）
-            moveScores.sort((a, b) -> b[2] - a[2]);
-
-            // 最善手と同スコアの手をリストアップ
-            int bestScore = moveScores.get(0)[2];
-            ArrayList<int[]> bestMoves = new ArrayList<>();
-            ArrayList<int[]> secondBestMoves = new ArrayList<>();
-            int secondBestScore = Integer.MIN_VALUE;
-
-            for (int[] ms : moveScores) {
-                if (ms[2] == bestScore) {
-                    bestMoves.add(ms);
-                } else if (ms[2] > secondBestScore) {
-                    secondBestScore = ms[2];
-                    secondBestMoves.clear();
-                    secondBestMoves.add(ms);
-                } else if (ms[2] == secondBestScore) {
-                    secondBestMoves.add(ms);
-                }
-            }
-
-            // 5%の確率で次善手を選択（次善手がある場合のみ）
-            int[] selectedMove;
-            if (secondBestMoves.size() > 0 && cpuRandom.nextInt(100) < LV3_SUBOPTIMAL_RATE) {
-                // 次善手からランダムに選択
-                selectedMove = secondBestMoves.get(cpuRandom.nextInt(secondBestMoves.size()));
+            applyStrength(strength);
+            if (strength.isTimeManaged()) {
+                TimeManager timeManager = new TimeManager(strength.getTimeLimitMs());
+                timeManager.start(emptyCount, moves.size());
+                engine.startSearch(timeManager);
             } else {
-                // 最善手からランダムに選択
-                selectedMove = bestMoves.get(cpuRandom.nextInt(bestMoves.size()));
+                engine.startSearch(strength.getTimeLimitMs());
             }
-
-            mR = selectedMove[0];
-            mC = selectedMove[1];
-        }
-
-        /**
-         * 終盤完全読み：石差を最大化する
-         */
-        private void thinkEndgame(Board board, int emptyCount) {
-            bestMoveR = -1;
-            bestMoveC = -1;
-
-            int bestScore = -INF;
-            ArrayList<HashMap> moves = board.getCanPutRCs(this.my_turn);
-
-            // 手を並べ替え（角優先）
-            sortMovesByPriority(moves);
-
-            for (HashMap<String, Integer> map : moves) {
-                if (checkTimeout()) break;
-
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(newBoard.getTurn(), r, c, false);
-                newBoard.changeTurn();
-
-                int score = -endgameSearch(newBoard, emptyCount - 1, -INF, -bestScore, this.my_turn);
-
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestMoveR = r;
-                    bestMoveC = c;
-                }
-            }
-
-            if (bestMoveR >= 0) {
-                mR = bestMoveR;
-                mC = bestMoveC;
+            // 開始前に打ち切られていたら読まない（それ以降の cancel は探索が拾う）
+            if (gameVersion != mGameVersion) {
+                return;
             }
-        }
 
-        /**
-         * 終盤探索（Negamax + Alpha-Beta）
-         */
-        private int endgameSearch(Board board, int depth, int alpha, int beta, E_STATUS originalTurn) {
-            if (checkTimeout()) return 0;
+            // 探索用の作業盤面（makeMove / undoMove で1枚を使い回す）
+            Board work = board.clone();
 
-            ArrayList<HashMap> moves = board.getCanPutRCs(board.getTurn());
-
-            // ゲーム終了または深さ0
-            if (depth == 0 || (moves.size() == 0 && !board.isCanPutAll(board.getOppositeTurn()))) {
-                return evalFinalScore(board, originalTurn);
-            }
+            // 終盤は勝敗を読み切ってから、時間があれば石差まで読み切る
+            SearchEngine.EndgameMode endgame = strength.getEndgameMode(emptyCount);
+            engine.iterativeDeepening(work, moves, strength.getMaxDepth(endgame), endgame);
 
-            // パス
-            if (moves.size() == 0) {
-                board.changeTurn();
-                return -endgameSearch(board, depth, -beta, -alpha, originalTurn);
+            // 最善手と同スコアの手
+            MoveList bestMoves = engine.getBestMoves();
+            if (bestMoves.size() == 0) {
+                // 1つも読み切れなかった場合は優先度順の先頭
+                mR = moves.getR(0);
+                mC = moves.getC(0);
+                return;
             }
 
-            // 手を並べ替え
-            sortMovesByPriority(moves);
-
-            int bestScore = -INF;
-
-            for (HashMap<String, Integer> map : moves) {
-                if (checkTimeout()) break;
-
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(newBoard.getTurn(), r, c, false);
-                newBoard.changeTurn();
-
-                int score = -endgameSearch(newBoard, depth - 1, -beta, -alpha, originalTurn);
-
-                if (score > bestScore) {
-                    bestScore = score;
-                }
-                if (score > alpha) {
-                    alpha = score;
+            // 次善手を選択（次善手がある場合のみ）
+            MoveList selected = bestMoves;
+            if (moves.size() > bestMoves.size() && cpuRandom.nextInt(100) < strength.getSuboptimalRate()) {
+                // 最善手を除いた手の中の最善手（同じ深さで読み直す。時間切れなら最善手のまま）
+                otherMoves.clear();
+                for (int i = 0; i < moves.size(); i++) {
+                    if (!contains(bestMoves, moves.get(i))) {
+                        otherMoves.add(moves.get(i));
+                    }
                 }
-                if (alpha >= beta) {
-                    break; // Beta cutoff
+                if (engine.searchBestOf(work, otherMoves, secondBestMoves)) {
+                    selected = secondBestMoves;
                 }
             }
 
-            return bestScore;
+            // ランダムに選択
+            int index = cpuRandom.nextInt(selected.size());
+            mR = selected.getR(index);
+            mC = selected.getC(index);
         }
 
         /**
-         * 最終石差を計算
+         * 探索エンジンを強さに合わせる（評価関数が変われば置換表は消え、先読みもやり直す）
          */
-        private int evalFinalScore(Board board, E_STATUS originalTurn) {
-            board.countCell();
-            int myCount = board.getStatusCount(originalTurn);
-            int oppCount = board.getStatusCount(Cell.getOppositeStatus(originalTurn));
-
-            int diff = myCount - oppCount;
-
-            // 現在の手番が元のプレイヤーかどうかで符号を調整
-            if (board.getTurn() == originalTurn) {
-                return diff * 100; // 石差を100倍してスコア化
-            } else {
-                return -diff * 100;
+        private void applyStrength(Strength strength) {
+            if (engine.getEvalSet() != strength.getEvalSet()) {
+                engine.setEvalSet(strength.getEvalSet());
+                hasPondered = false;
             }
+            engine.setThreads(strength.isParallel() ? this.searchThreads : 1);
         }
 
         /**
-         * 反復深化探索
+         * 定石から手を選ぶ
+         * 最善の定石手に近い手（BOOK_SCORE_MARGIN 以内）からランダムに、suboptimalRate % の確率でその次に良い手から選ぶ
+         * @return 定石にある局面なら true（mR, mC に手を入れる）
          */
-        private void thinkIterativeDeepening(Board board) {
-            bestMoveR = -1;
-            bestMoveC = -1;
-
-            ArrayList<HashMap> moves = board.getCanPutRCs(this.my_turn);
-
-            // 最初の手を仮の最善手とする
-            if (moves.size() > 0) {
-                HashMap<String, Integer> firstMap = moves.get(0);
-                bestMoveR = firstMap.get("r");
-                bestMoveC = firstMap.get("c");
-                mR = bestMoveR;
-                mC = bestMoveC;
-            }
-
-            // 深さ1から開始して徐々に深くする
-            for (int depth = 1; depth <= LV3_NORMAL_DEPTH; depth++) {
-                if (checkTimeout()) break;
-
-                int[] result = alphaBetaLv3(board, depth, -INF, INF, true, this.my_turn);
-
-                if (!isTimeout && result[1] >= 0 && result[2] >= 0) {
-                    bestMoveR = result[1];
-                    bestMoveC = result[2];
-                    mR = bestMoveR;
-                    mC = bestMoveC;
-                }
-            }
-        }
-
-        /**
-         * Lv.3用のAlpha-Beta探索（Negamax形式）
-         * @return [スコア, 最善手のR, 最善手のC]
-         */
-        private int[] alphaBetaLv3(Board board, int depth, int alpha, int beta, boolean isRoot, E_STATUS originalTurn) {
-            if (checkTimeout()) {
-                return new int[]{0, -1, -1};
-            }
-
-            ArrayList<HashMap> moves = board.getCanPutRCs(board.getTurn());
-
-            // ゲーム終了判定
-            if (moves.size() == 0 && !board.isCanPutAll(board.getOppositeTurn())) {
-                return new int[]{evalFinalScore(board, originalTurn), -1, -1};
+        private boolean selectBookMove(Board board, int suboptimalRate) {
+            OpeningBook book = this.book;
+            if (book == null || !book.lookup(board, bookMoves)) {
+                return false;
             }
 
-            // 深さ0で評価
-            if (depth == 0) {
-                int score = evalPositionLv3(board, originalTurn);
-                // 現在の手番が元のプレイヤーでない場合は符号反転
-                if (board.getTurn() != originalTurn) {
-                    score = -score;
-                }
-                return new int[]{score, -1, -1};
+            // 定石手は評価値の高い順に並んでいる
+            int bestCount = 1;
+            while (bestCount < bookMoves.size()
+                    && bookMoves.getScore(bestCount) >= bookMoves.getScore(0) - BOOK_SCORE_MARGIN) {
+                bestCount++;
             }
-
-            // パス
-            if (moves.size() == 0) {
-                Board newBoard = board.clone();
-                newBoard.changeTurn();
-                int[] result = alphaBetaLv3(newBoard, depth, -beta, -alpha, false, originalTurn);
-                return new int[]{-result[0], -1, -1};
+            int secondCount = 0;
+            while (bestCount + secondCount < bookMoves.size()
+                    && bookMoves.getScore(bestCount + secondCount) == bookMoves.getScore(bestCount)) {
+                secondCount++;
             }
 
-            // 手を並べ替え（角優先、X/C打ち回避）
-            sortMovesByPriority(moves);
-
-            int bestScore = -INF;
-            int bestR = -1;
-            int bestC = -1;
-
-            for (HashMap<String, Integer> map : moves) {
-                if (checkTimeout()) break;
-
-                int r = map.get("r");
-                int c = map.get("c");
-
-                Board newBoard = board.clone();
-                newBoard.changeCell(r, c);
-                newBoard.turnOverCells(newBoard.getTurn(), r, c, false);
-                newBoard.changeTurn();
-
-                int[] result = alphaBetaLv3(newBoard, depth - 1, -beta, -alpha, false, originalTurn);
-                int score = -result[0];
-
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestR = r;
-                    bestC = c;
-                }
-                if (score > alpha) {
-                    alpha = score;
-                }
-                if (alpha >= beta) {
-                    break; // Beta cutoff
-                }
+            int index;
+            if (secondCount > 0 && cpuRandom.nextInt(100) < suboptimalRate) {
+                index = bestCount + cpuRandom.nextInt(secondCount);
+            } else {
+                index = cpuRandom.nextInt(bestCount);
             }
-
-            return new int[]{bestScore, bestR, bestC};
+            mR = bookMoves.getR(index);
+            mC = bookMoves.getC(index);
+            return true;
         }
 
         /**
-         * Lv.3用の高度な評価関数
+         * 先読み（相手の手番の間）
+         * 相手の合法手それぞれに対する応手を読み、置換表に残しておく。相手が打ったら stopPondering、リスタートなどでは cancel で止まる
+         * 同じ局面は 1 度だけ読む
          */
-        private int evalPositionLv3(Board board, E_STATUS myTurn) {
-            E_STATUS oppTurn = Cell.getOppositeStatus(myTurn);
-            Cell[][] cells = board.getCells();
-
-            int score = 0;
-
-            // 1. 位置評価（従来のスコア表）
-            int positionScore = 0;
-            for (int r = 0; r < Board.ROWS; r++) {
-                for (int c = 0; c < Board.COLS; c++) {
-                    E_STATUS status = cells[r][c].getStatus();
-                    if (status == myTurn) {
-                        positionScore += Board.scores[r][c];
-                    } else if (status == oppTurn) {
-                        positionScore -= Board.scores[r][c];
-                    }
-                }
-            }
-            score += positionScore * WEIGHT_POSITION;
-
-            // 2. 角の確保
-            int cornerScore = 0;
-            int[][] corners = {{0, 0}, {0, 7}, {7, 0}, {7, 7}};
-            for (int[] corner : corners) {
-                E_STATUS status = cells[corner[0]][corner[1]].getStatus();
-                if (status == myTurn) {
-                    cornerScore += WEIGHT_CORNER;
-                } else if (status == oppTurn) {
-                    cornerScore -= WEIGHT_CORNER;
-                }
-            }
-            score += cornerScore;
-
-            // 3. X打ち・C打ちのペナルティ（角が空いている場合のみ）
-            int dangerScore = 0;
-            // 左上角関連
-            if (cells[0][0].getStatus() == E_STATUS.None) {
-                dangerScore += evalDangerSquare(cells, 1, 1, myTurn, oppTurn, WEIGHT_X_SQUARE);
-                dangerScore += evalDangerSquare(cells, 0, 1, myTurn, oppTurn, WEIGHT_C_SQUARE);
-                dangerScore += evalDangerSquare(cells, 1, 0, myTurn, oppTurn, WEIGHT_C_SQUARE);
-            }
-            // 右上角関連
-            if (cells[0][7].getStatus() == E_STATUS.None) {
-                dangerScore += evalDangerSquare(cells, 1, 6, myTurn, oppTurn, WEIGHT_X_SQUARE);
-                dangerScore += evalDangerSquare(cells, 0, 6, myTurn, oppTurn, WEIGHT_C_SQUARE);
-                dangerScore += evalDangerSquare(cells, 1, 7, myTurn, oppTurn, WEIGHT_C_SQUARE);
-            }
-            // 左下角関連
-            if (cells[7][0].getStatus() == E_STATUS.None) {
-                dangerScore += evalDangerSquare(cells, 6, 1, myTurn, oppTurn, WEIGHT_X_SQUARE);
-                dangerScore += evalDangerSquare(cells, 7, 1, myTurn, oppTurn, WEIGHT_C_SQUARE);
-                dangerScore += evalDangerSquare(cells, 6, 0, myTurn, oppTurn, WEIGHT_C_SQUARE);
-            }
-            // 右下角関連
-            if (cells[7][7].getStatus() == E_STATUS.None) {
-                dangerScore += evalDangerSquare(cells, 6, 6, myTurn, oppTurn, WEIGHT_X_SQUARE);
-                dangerScore += evalDangerSquare(cells, 7, 6, myTurn, oppTurn, WEIGHT_C_SQUARE);
-                dangerScore += evalDangerSquare(cells, 6, 7, myTurn, oppTurn, WEIGHT_C_SQUARE);
+        private void ponder(Strength strength) {
+            if (this.my_turn == E_STATUS.None || mLock) {
+                return;
             }
-            score += dangerScore;
-
-            // 4. 着手可能数（Mobility）
-            int myMobility = board.getCanPutRCs(myTurn).size();
-            int oppMobility = board.getCanPutRCs(oppTurn).size();
-            score += (myMobility - oppMobility) * WEIGHT_MOBILITY;
-
-            // 5. 安定石（確定石）の評価
-            int stableScore = countStableDiscs(cells, myTurn) - countStableDiscs(cells, oppTurn);
-            score += stableScore * WEIGHT_STABLE;
-
-            return score;
-        }
-
-        /**
-         * 危険マス（X打ち、C打ち）の評価
-         */
-        private int evalDangerSquare(Cell[][] cells, int r, int c, E_STATUS myTurn, E_STATUS oppTurn, int weight) {
-            E_STATUS status = cells[r][c].getStatus();
-            if (status == myTurn) {
-                return weight; // 自分が置いている → ペナルティ
-            } else if (status == oppTurn) {
-                return -weight; // 相手が置いている → ボーナス
+            int gameVersion = mGameVersion;
+            Board board = mBoard.clone();
+            applyStrength(strength);
+            if (hasPondered && board.getHash() == ponderedHash) {
+                return;
             }
-            return 0;
-        }
-
-        /**
-         * 安定石（もう返されない石）の数を数える
-         * 簡易版：角からの連続した石をカウント
-         */
-        private int countStableDiscs(Cell[][] cells, E_STATUS turn) {
-            int count = 0;
-
-            // 4つの角からそれぞれ安定石を数える
-            // 左上角から
-            count += countStableFromCorner(cells, turn, 0, 0, 1, 1);
-            // 右上角から
-            count += countStableFromCorner(cells, turn, 0, 7, 1, -1);
-            // 左下角から
-            count += countStableFromCorner(cells, turn, 7, 0, -1, 1);
-            // 右下角から
-            count += countStableFromCorner(cells, turn, 7, 7, -1, -1);
-
-            return count;
-        }
-
-        /**
-         * 角から連続する安定石を数える
-         */
-        private int countStableFromCorner(Cell[][] cells, E_STATUS turn, int startR, int startC, int dr, int dc) {
-            if (cells[startR][startC].getStatus() != turn) {
-                return 0;
+            board.getMoves(board.getTurn(), ponderMoves);
+            if (ponderMoves.size() == 0) {
+                return;
             }
 
-            int count = 0;
-
-            // 角から辺に沿って連続する石を数える
-            // 縦方向
-            int r = startR;
-            while (r >= 0 && r < Board.ROWS && cells[r][startC].getStatus() == turn) {
-                count++;
-                r += dr;
+            engine.startSearch(PONDER_TIME_LIMIT_MS);
+            // 複製のあとに人が打ち始めたり、リスタート・待ったがあったりしたら読まない
+            // （mLock とゲームバージョンは、止める合図より先に変わる）
+            if (mLock || gameVersion != mGameVersion || mBoard.getTurn() == this.my_turn) {
+                return;
             }
 
-            // 横方向
-            int c = startC + dc;
-            while (c >= 0 && c < Board.COLS && cells[startR][c].getStatus() == turn) {
-                count++;
-                c += dc;
+            // 応手の局面は空きマスが 1 つ少ない
+            SearchEngine.EndgameMode endgame = strength.getEndgameMode(countEmpty(board) - 1);
+            if (engine.ponder(board, ponderMoves, strength.getMaxDepth(endgame), endgame)) {
+                ponderedHash = board.getHash();
+                hasPondered = true;
             }
-
-            return count;
         }
 
-        /**
-         * 空きマス数を数える
-         */
-        private int countEmpty(Board board) {
-            int count = 0;
-            Cell[][] cells = board.getCells();
-            for (int r = 0; r < Board.ROWS; r++) {
-                for (int c = 0; c < Board.COLS; c++) {
-                    if (cells[r][c].getStatus() == E_STATUS.None) {
-                        count++;
-                    }
+        private boolean contains(MoveList moves, int sq) {
+            for (int i = 0; i < moves.size(); i++) {
+                if (moves.get(i) == sq) {
+                    return true;
                 }
             }
-            return count;
+            return false;
         }
 
         /**
-         * 手を優先度順に並べ替え（角優先、X/C打ち回避）
-         */
-        private void sortMovesByPriority(ArrayList<HashMap> moves) {
-            moves.sort((a, b) -> {
-                int ra = (int) a.get("r");
-                int ca = (int) a.get("c");
-                int rb = (int) b.get("r");
-                int cb = (int) b.get("c");
-
-                int prioA = getMovePriority(ra, ca);
-                int prioB = getMovePriority(rb, cb);
-
-                return prioB - prioA; // 高い優先度が先
-            });
-        }
-
-        /**
-         * 手の優先度を返す
-         */
-        private int getMovePriority(int r, int c) {
-            // 角は最優先
-            if ((r == 0 || r == 7) && (c == 0 || c == 7)) {
-                return 100;
-            }
-            // 辺は次に優先
-            if (r == 0 || r == 7 || c == 0 || c == 7) {
-                // ただしC打ちは低優先
-                if ((r == 0 || r == 7) && (c == 1 || c == 6)) return -10;
-                if ((r == 1 || r == 6) && (c == 0 || c == 7)) return -10;
-                return 50;
-            }
-            // X打ちは最低優先
-            if ((r == 1 || r == 6) && (c == 1 || c == 6)) {
-                return -50;
-            }
-            // その他は中程度
-            return 0;
-        }
-
-        /**
-         * タイムアウトチェック
+         * 空きマス数を数える
          */
-        private boolean checkTimeout() {
-            if (System.currentTimeMillis() - thinkStartTime > LV3_TIME_LIMIT_MS) {
-                isTimeout = true;
-            }
-            return isTimeout;
-        }
-
-        private int alphaBeta(Board _board, int _depth, int _score) {
-            int minimax_score = UNDECIDED_SCORE;
-
-            ArrayList<HashMap> list = _board.getCanPutRCs(_board.getTurn());
-
-            if (list.size() == 0) {
-                Board board = _board.clone();
-
-                int score = 0;
-
-                if (_depth == 1) {
-                    score = board.calcScore(board.getTurn());
-                } else {
-                    board.changeTurn();
-                    score = alphaBeta(board, _depth - 1, minimax_score);
-                }
-
-//                Log.d("test", "depth=" + _depth + ", score=" + score);
-
-                minimax_score = score;
-            } else {
-                for (HashMap<String, Integer> map : list) {
-                    Board board = _board.clone();
-
-                    int r = map.get("r");
-                    int c = map.get("c");
-
-                    board.changeCell(r, c);
-                    board.turnOverCells(board.getTurn(), r, c, false);
-
-                    int score = 0;
-
-                    if (_depth == 1) {
-                        score = board.calcScore(board.getTurn());
-                    } else {
-                        board.changeTurn();
-                        score = alphaBeta(board, _depth - 1, minimax_score);
-                    }
-
-//                    Log.d("test", "depth=" + _depth + ", r=" + r + ", c=" + c + ", score=" + score);
-
-                    if (minimax_score == UNDECIDED_SCORE) {
-                        minimax_score = score;
-                        if (_depth == mDepth) {
-                            mR = r;
-                            mC = c;
-                        }
-                    } else {
-                        if (_depth % 2 == 1) {
-                            if (minimax_score < score) {
-                                minimax_score = score;
-                                if (_depth == mDepth) {
-                                    mR = r;
-                                    mC = c;
-                                }
-                            }
-                        } else {
-                            if (minimax_score > score) {
-                                minimax_score = score;
-                                if (_depth == mDepth) {
-                                    mR = r;
-                                    mC = c;
-                                }
-                            }
-                        }
-                    }
-
-                    if (_score != UNDECIDED_SCORE) {
-                        if (_depth % 2 == 1) {
-//                            if (_score < minimax_score) {
-                            if (_score <= minimax_score) {
-                                break;
-                            }
-                        } else {
-//                            if (_score > minimax_score) {
-                            if (_score >= minimax_score) {
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-
-            return minimax_score;
-        }
-
-        private int minimax(Board _board, int _depth) {
-            int best_score  = -999;
-            int worst_score = 999;
-
-            ArrayList<HashMap> list = _board.getCanPutRCs(_board.getTurn());
-
-            if (list.size() == 0) {
-                Board board = _board.clone();
-
-                int score = 0;
-
-                if (_depth == 1) {
-                    score = board.calcScore(board.getTurn());
-                } else {
-                    board.changeTurn();
-                    score = minimax(board, _depth - 1);
-                }
-
-//                Log.d("test", "depth=" + _depth + ", score=" + score);
-
-                if (_depth % 2 == 1) {
-                    best_score = score;
-                } else {
-                    worst_score = score;
-                }
-            } else {
-                for (HashMap<String, Integer> map : list) {
-                    Board board = _board.clone();
-
-                    int r = map.get("r");
-                    int c = map.get("c");
-
-                    board.changeCell(r, c);
-                    board.turnOverCells(board.getTurn(), r, c, false);
-
-                    int score = 0;
-
-                    if (_depth == 1) {
-                        score = board.calcScore(board.getTurn());
-                    } else {
-                        board.changeTurn();
-                        score = minimax(board, _depth - 1);
-                    }
-
-//                    Log.d("test", "depth=" + _depth + ", r=" + r + ", c=" + c + ", score=" + score);
-
-                    if (_depth % 2 == 1) {
-                        if (best_score < score) {
-                            best_score = score;
-                            if (_depth == mDepth) {
-                                mR = r;
-                                mC = c;
-                            }
-                        }
-                    } else {
-                        if (worst_score > score) {
-                            worst_score = score;
-                            if (_depth == mDepth) {
-                                mR = r;
-                                mC = c;
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (_depth % 2 == 1) {
-                return best_score;
-            } else {
-                return worst_score;
-            }
+        private int countEmpty(Board board) {
+            return board.getStatusCount(E_STATUS.None);
         }
     }
 
@@ -18,6 +18,7 @@ public class SettingActivity extends AppCompatActivity
     private static final String PREF_SKIP_QUICK_SETTINGS = "skipQuickSettings";
 
     private int level = 0;
+    private int searchThreads = 0;   // 0=自動（コア数）
     private boolean isFirst = true;
     private int handicapTarget = 0;  // 0=なし, 1=自分, 2=相手
     private int handicapCount = 1;   // 1〜4
@@ -29,6 +30,7 @@ public class SettingActivity extends AppCompatActivity
     private boolean isShowQuickSettings = true;
 
     private MaterialButtonToggleGroup levelToggleGroup;
+    private MaterialButtonToggleGroup threadsToggleGroup;
     private MaterialButtonToggleGroup tebanToggleGroup;
     private MaterialButtonToggleGroup handicapTargetToggleGroup;
     private MaterialButtonToggleGroup handicapCountToggleGroup;
@@ -49,6 +51,7 @@ public class SettingActivity extends AppCompatActivity
         Intent intent = getIntent();
 
         level = intent.getIntExtra("level", 0);
+        searchThreads = intent.getIntExtra("searchThreads", 0);
         isFirst = intent.getBooleanExtra("first", true);
         handicapTarget = intent.getIntExtra("handicapTarget", 0);
         handicapCount = intent.getIntExtra("handicapCount", 1);
@@ -60,6 +63,7 @@ public class SettingActivity extends AppCompatActivity
 
         // Initialize views
         levelToggleGroup = findViewById(R.id.levelToggleGroup);
+        threadsToggleGroup = findViewById(R.id.threadsToggleGroup);
         tebanToggleGroup = findViewById(R.id.tebanToggleGroup);
         handicapTargetToggleGroup = findViewById(R.id.handicapTargetToggleGroup);
         handicapCountToggleGroup = findViewById(R.id.handicapCountToggleGroup);
@@ -77,6 +81,7 @@ public class SettingActivity extends AppCompatActivity
         isShowQuickSettings = !pref.getBoolean(PREF_SKIP_QUICK_SETTINGS, false);
 
         loadLevel();
+        loadSearchThreads();
         loadTeban();
         loadHandicap();
         loadRandomMode();
@@ -101,6 +106,26 @@ public class SettingActivity extends AppCompatActivity
             }
         });
 
+        // Search threads selection listener
+        threadsToggleGroup.addOnButtonCheckedListener(new MaterialButtonToggleGroup.OnButtonCheckedListener() {
+            @Override
+            public void onButtonChecked(MaterialButtonToggleGroup group, int checkedId, boolean isChecked) {
+                if (isChecked) {
+                    if (checkedId == R.id.threadsAuto) {
+                        searchThreads = 0;
+                    } else if (checkedId == R.id.threads1) {
+                        searchThreads = 1;
+                    } else if (checkedId == R.id.threads2) {
+                        searchThreads = 2;
+                    } else if (checkedId == R.id.threads4) {
+                        searchThreads = 4;
+                    } else if (checkedId == R.id.threads8) {
+                        searchThreads = 8;
+                    }
+                }
+            }
+        });
+
         // Turn selection listener
         tebanToggleGroup.addOnButtonCheckedListener(new MaterialButtonToggleGroup.OnButtonCheckedListener() {
             @Override
@@ -201,6 +226,7 @@ public class SettingActivity extends AppCompatActivity
 
                 Intent intent = new Intent();
                 intent.putExtra("level", level);
+                intent.putExtra("searchThreads", searchThreads);
                 intent.putExtra("first", isFirst);
                 intent.putExtra("handicapTarget", handicapTarget);
                 intent.putExtra("handicapCount", handicapCount);
@@ -242,6 +268,28 @@ public class SettingActivity extends AppCompatActivity
         levelToggleGroup.check(buttonId);
     }
 
+    private void loadSearchThreads() {
+        int buttonId = R.id.threadsAuto;
+        switch (searchThreads) {
+            case 1:
+                buttonId = R.id.threads1;
+                break;
+            case 2:
+                buttonId = R.id.threads2;
+                break;
+            case 4:
+                buttonId = R.id.threads4;
+                break;
+            case 8:
+                buttonId = R.id.threads8;
+                break;
+            default:
+                buttonId = R.id.threadsAuto;
+                break;
+        }
+        threadsToggleGroup.check(buttonId);
+    }
+
     private void loadTeban() {
         if (isFirst) {
             tebanToggleGroup.check(R.id.black);
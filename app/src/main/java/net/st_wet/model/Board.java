@@ -10,19 +10,8 @@ public class Board implements Cloneable
     public static final int COLS = 8;
     public static final int ROWS = 8;
 
-    private static final int DIRECTION_MAX = 8;
-
-    private static int[][] directions = {
-
-      { 0, -1},  // DIRECTION_UP,
-      {-1, -1},  // DIRECTION_UP_LEFT,
-      {-1,  0},  // DIRECTION_LEFT,
-      {-1,  1},  // DIRECTION_DOWN_LEFT,
-      { 0,  1},  // DIRECTION_DOWN,
-      { 1,  1},  // DIRECTION_DOWN_RIGHT,
-      { 1,  0},  // DIRECTION_RIGHT,
-      { 1, -1},  // DIRECTION_UP_RIGHT,
-    };
+    // 取り消し用スタックの深さ（60手＋パス分の余裕）
+    private static final int UNDO_STACK_SIZE = 128;
 
     public static final int[][] scores = {
             {120, -20, 20,  5,  5, 20, -20, 120},
@@ -34,6 +23,92 @@ public class Board implements Cloneable
             {-20, -40, -5, -5, -5, -5, -40, -20},
             {120, -20, 20,  5,  5, 20, -20, 120},
     };
+    // scores をマス番号で引けるようにしたもの
+    private static final int[] SQUARE_SCORES = new int[ROWS * COLS];
+    static {
+        for (int sq = 0; sq < SQUARE_SCORES.length; sq++) {
+            SQUARE_SCORES[sq] = scores[sq / COLS][sq % COLS];
+        }
+    }
+
+    // 1 ライン（8 マス）分の裏返しテーブル
+    // [打つ位置][自分の石 8 ビット][相手の石 両端を除く 6 ビット] → 裏返る石 8 ビット
+    // 両端の相手の石は裏返らず、挟む石にもならないので索引から外している
+    private static final byte[] LINE_FLIPS = new byte[COLS * 256 * 64];
+    // 各マスを通る斜めライン（右下がり・左下がり）のマスク
+    private static final long[] DIAGONAL_MASKS = new long[ROWS * COLS];
+    private static final long[] ANTI_DIAGONAL_MASKS = new long[ROWS * COLS];
+    // 列の 8 ビット（行番号順）→ A 列のビットマスク
+    private static final long[] COLUMN_BITS = new long[256];
+    private static final long FILE_A = 0x0101010101010101L;
+    static {
+        for (int x = 0; x < COLS; x++) {
+            for (int own = 0; own < 256; own++) {
+                for (int inner = 0; inner < 64; inner++) {
+                    int opp = (inner << 1) & ~own;
+                    int flips = 0;
+                    int line = 0;
+                    int i;
+                    for (i = x + 1; i < COLS && (opp & (1 << i)) != 0; i++) {
+                        line |= 1 << i;
+                    }
+                    if (i < COLS && (own & (1 << i)) != 0) {
+                        flips |= line;
+                    }
+                    line = 0;
+                    for (i = x - 1; i >= 0 && (opp & (1 << i)) != 0; i--) {
+                        line |= 1 << i;
+                    }
+                    if (i >= 0 && (own & (1 << i)) != 0) {
+                        flips |= line;
+                    }
+                    LINE_FLIPS[(x << 14) | (own << 6) | inner] = (byte) flips;
+                }
+            }
+        }
+        for (int sq = 0; sq < ROWS * COLS; sq++) {
+            int r = sq / COLS;
+            int c = sq % COLS;
+            for (int i = 0; i < ROWS * COLS; i++) {
+                int _r = i / COLS;
+                int _c = i % COLS;
+                if (_c - _r == c - r) {
+                    DIAGONAL_MASKS[sq] |= 1L << i;
+                }
+                if (_c + _r == c + r) {
+                    ANTI_DIAGONAL_MASKS[sq] |= 1L << i;
+                }
+            }
+        }
+        for (int bits = 0; bits < 256; bits++) {
+            for (int r = 0; r < ROWS; r++) {
+                if ((bits & (1 << r)) != 0) {
+                    COLUMN_BITS[bits] |= 1L << (r * COLS);
+                }
+            }
+        }
+    }
+
+    // Zobrist ハッシュ用の乱数（[状態][マス番号]、None は 0）と白番を表す値
+    private static final long[][] ZOBRIST_STONES = new long[3][ROWS * COLS];
+    private static final long[] ZOBRIST_FLIP = new long[ROWS * COLS];
+    private static final long ZOBRIST_WHITE_TURN;
+    static {
+        // 実行ごとに値が変わらないよう固定シードの SplitMix64 で生成する
+        long seed = 0x4F7468656C6C6FL;
+        for (int i = E_STATUS.Black.ordinal(); i <= E_STATUS.White.ordinal(); i++) {
+            for (int sq = 0; sq < ROWS * COLS; sq++) {
+                seed += 0x9E3779B97F4A7C15L;
+                ZOBRIST_STONES[i][sq] = mix64(seed);
+            }
+        }
+        for (int sq = 0; sq < ROWS * COLS; sq++) {
+            ZOBRIST_FLIP[sq] = ZOBRIST_STONES[E_STATUS.Black.ordinal()][sq] ^ ZOBRIST_STONES[E_STATUS.White.ordinal()][sq];
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        ZOBRIST_WHITE_TURN = mix64(seed);
+    }
+
 //    public static final int[][] scores = {
 //        { 30, -12,  0, -1, -1,  0, -12,  30},
 //        {-12, -15, -3, -3, -3, -3, -15, -12},
@@ -50,26 +125,39 @@ public class Board implements Cloneable
     private int top    = 0;
     private int left   = 0;
 
-    private Cell cells[][] = new Cell[ROWS][COLS];
+    // 盤面の実体（ビットボード）：マス (r, c) はビット r * COLS + c に対応する
+    private long black = 0;
+    private long white = 0;
     private Cell.E_STATUS turn;
 
+    // 描画用のビュー（探索用の複製では必要になるまで作らない）
+    private Cell cells[][] = null;
+
+    // 石数と位置評価（scores の合計）は石を置く・返すたびに差分で更新する
     private int[] status_count = new int[3];
+    private int[] position_score = new int[3];
+
+    // 局面の Zobrist ハッシュ（石の配置と手番、差分で更新する）
+    private long hash = 0;
 
-    private ArrayList<Cell> turn_overed_cells = new ArrayList<Cell>();
+    // makeMove / undoMove 用の取り消しスタック
+    private E_STATUS[] undo_turns = new E_STATUS[UNDO_STACK_SIZE];
+    private int[] undo_flip_scores = new int[UNDO_STACK_SIZE];
+    private long[] undo_hashes = new long[UNDO_STACK_SIZE];
+    private int undo_depth = 0;
 
     @Override
     public Board clone() {
         Board clonedBoard = null;
         try {
             clonedBoard = (Board)super.clone();
-
-            Cell cells[][] = new Cell[ROWS][COLS];
-            for (int r = 0; r < ROWS; r++) {
-                for (int c = 0; c < COLS; c++) {
-                    cells[r][c] = this.cells[r][c].clone();
-                }
-            }
-            clonedBoard.cells = cells;
+            clonedBoard.cells = null;
+            clonedBoard.status_count = this.status_count.clone();
+            clonedBoard.position_score = this.position_score.clone();
+            clonedBoard.undo_turns = new E_STATUS[UNDO_STACK_SIZE];
+            clonedBoard.undo_flip_scores = new int[UNDO_STACK_SIZE];
+            clonedBoard.undo_hashes = new long[UNDO_STACK_SIZE];
+            clonedBoard.undo_depth = 0;
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
         }
@@ -77,11 +165,8 @@ public class Board implements Cloneable
     }
 
     public Board() {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                cells[r][c] = new Cell();
-            }
-        }
+        getCells();
+        clearStones();
         init();
     }
 
@@ -90,11 +175,7 @@ public class Board implements Cloneable
     }
 
     public void reset(int handicapTarget, int handicapCount) {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                cells[r][c].setStatus(E_STATUS.None);
-            }
-        }
+        clearStones();
         init(handicapTarget, handicapCount);
     }
 
@@ -102,19 +183,112 @@ public class Board implements Cloneable
      * 盤面を空にする（石を一切置かない状態）
      */
     public void resetEmpty() {
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                cells[r][c].setStatus(E_STATUS.None);
-            }
-        }
-        this.turn = E_STATUS.Black;
+        clearStones();
+        updateCells(~0L);
+        setTurn(E_STATUS.Black);
     }
 
     /**
      * 指定位置に石を配置
      */
     public void setCell(int r, int c, E_STATUS status) {
-        cells[r][c].setStatus(status);
+        int sq = toSquare(r, c);
+        long bit = 1L << sq;
+        E_STATUS old = getStatus(r, c);
+        this.status_count[old.ordinal()]--;
+        this.position_score[old.ordinal()] -= SQUARE_SCORES[sq];
+        this.status_count[status.ordinal()]++;
+        this.position_score[status.ordinal()] += SQUARE_SCORES[sq];
+        this.hash ^= ZOBRIST_STONES[old.ordinal()][sq] ^ ZOBRIST_STONES[status.ordinal()][sq];
+
+        this.black &= ~bit;
+        this.white &= ~bit;
+        if (status == E_STATUS.Black) {
+            this.black |= bit;
+        } else if (status == E_STATUS.White) {
+            this.white |= bit;
+        }
+        updateCells(bit);
+    }
+
+    /**
+     * 全ての石を取り除く
+     */
+    private void clearStones() {
+        this.black = 0;
+        this.white = 0;
+        this.status_count[E_STATUS.None.ordinal()] = ROWS * COLS;
+        this.status_count[E_STATUS.Black.ordinal()] = 0;
+        this.status_count[E_STATUS.White.ordinal()] = 0;
+        this.position_score[E_STATUS.Black.ordinal()] = 0;
+        this.position_score[E_STATUS.White.ordinal()] = 0;
+        this.hash = calcHash(0, 0, this.turn);
+    }
+
+    /**
+     * 現在の局面（石の配置と手番）を取得
+     */
+    public Position getPosition() {
+        return new Position(this.black, this.white, this.turn);
+    }
+
+    /**
+     * 局面（石の配置と手番）をまとめて設定
+     */
+    public void setPosition(Position position) {
+        this.black = position.getBlack();
+        this.white = position.getWhite();
+        this.turn = position.getTurn();
+        countCell();
+        this.hash = calcHash();
+        updateCells(~0L);
+    }
+
+    /**
+     * 行・列からマス番号（0〜63）を求める
+     */
+    public static int toSquare(int r, int c) {
+        return r * COLS + c;
+    }
+
+    /**
+     * 指定した色の石の位置をビットマスクで取得（None は空きマス）
+     */
+    public long getStones(E_STATUS status) {
+        if (status == E_STATUS.Black) {
+            return this.black;
+        } else if (status == E_STATUS.White) {
+            return this.white;
+        }
+        return ~(this.black | this.white);
+    }
+
+    /**
+     * 指定位置の状態を取得
+     */
+    public E_STATUS getStatus(int r, int c) {
+        long bit = 1L << toSquare(r, c);
+        if ((this.black & bit) != 0) {
+            return E_STATUS.Black;
+        } else if ((this.white & bit) != 0) {
+            return E_STATUS.White;
+        }
+        return E_STATUS.None;
+    }
+
+    /**
+     * ビューのセルをビットボードの内容に合わせる
+     * @param mask 更新するマス
+     */
+    private void updateCells(long mask) {
+        if (this.cells == null) {
+            return;
+        }
+        while (mask != 0) {
+            int sq = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            this.cells[sq / COLS][sq % COLS].setStatus(getStatus(sq / COLS, sq % COLS));
+        }
     }
 
     public void init() {
@@ -127,10 +301,10 @@ public class Board implements Cloneable
      * @param handicapCount 角の数 (1〜4)
      */
     public void init(int handicapTarget, int handicapCount) {
-        cells[ROWS/2 -1][COLS/2 -1].setStatus(E_STATUS.Black);
-        cells[ROWS/2 -1][COLS/2   ].setStatus(E_STATUS.White);
-        cells[ROWS/2   ][COLS/2 -1].setStatus(E_STATUS.White);
-        cells[ROWS/2   ][COLS/2   ].setStatus(E_STATUS.Black);
+        setCell(ROWS/2 -1, COLS/2 -1, E_STATUS.Black);
+        setCell(ROWS/2 -1, COLS/2   , E_STATUS.White);
+        setCell(ROWS/2   , COLS/2 -1, E_STATUS.White);
+        setCell(ROWS/2   , COLS/2   , E_STATUS.Black);
 
         // ハンディキャップの角を配置
         if (handicapTarget != 0 && handicapCount >= 1) {
@@ -140,13 +314,13 @@ public class Board implements Cloneable
             int[][] corners = {{0, 0}, {ROWS-1, COLS-1}, {0, COLS-1}, {ROWS-1, 0}};
 
             for (int i = 0; i < handicapCount && i < 4; i++) {
-                cells[corners[i][0]][corners[i][1]].setStatus(handicapColor);
+                setCell(corners[i][0], corners[i][1], handicapColor);
             }
         }
 
-        countCell();
+        updateCells(~0L);
 
-        this.turn = E_STATUS.Black;
+        setTurn(E_STATUS.Black);
     }
 
     public void setSize(int width, int height) {
@@ -159,6 +333,7 @@ public class Board implements Cloneable
         int cellW = this.getCellWidth();
         int cellH = this.getCellHeidht();
 
+        Cell[][] cells = getCells();
         for (int r = 0; r < ROWS; r++) {
             for (int c = 0; c < COLS; c++) {
                 cells[r][c].setWidth(cellW);
@@ -179,6 +354,15 @@ public class Board implements Cloneable
     }
 
     public Cell[][] getCells() {
+        if (this.cells == null) {
+            this.cells = new Cell[ROWS][COLS];
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLS; c++) {
+                    this.cells[r][c] = new Cell();
+                }
+            }
+            updateCells(~0L);
+        }
         return this.cells;
     }
 
@@ -199,146 +383,355 @@ public class Board implements Cloneable
     }
 
     public void changeTurn() {
-        this.turn = getOppositeTurn();
+        setTurn(getOppositeTurn());
     }
 
     public void endTurn() {
-        this.turn = E_STATUS.None;
+        setTurn(E_STATUS.None);
     }
 
     public void setTurn(E_STATUS turn) {
+        if ((this.turn == E_STATUS.White) != (turn == E_STATUS.White)) {
+            this.hash ^= ZOBRIST_WHITE_TURN;
+        }
         this.turn = turn;
     }
 
-    public ArrayList<Cell> turnOverCells(E_STATUS status, int r, int c, boolean dry_run) {
-        ArrayList<Cell> turn_overed_cells = new ArrayList<Cell>();
+    /**
+     * 局面の Zobrist ハッシュ（差分で更新済みの値）
+     */
+    public long getHash() {
+        return this.hash;
+    }
 
-        turn_overed_cells.clear();
+    /**
+     * 局面の Zobrist ハッシュを盤面から計算し直す（差分更新の検証用）
+     */
+    public long calcHash() {
+        return calcHash(this.black, this.white, this.turn);
+    }
 
-        for (int i = 0; i < DIRECTION_MAX; i++) {
-            int _r = r;
-            int _c = c;
+    public static long calcHash(long black, long white, E_STATUS turn) {
+        long hash = (turn == E_STATUS.White) ? ZOBRIST_WHITE_TURN : 0;
+        while (black != 0) {
+            hash ^= ZOBRIST_STONES[E_STATUS.Black.ordinal()][Long.numberOfTrailingZeros(black)];
+            black &= black - 1;
+        }
+        while (white != 0) {
+            hash ^= ZOBRIST_STONES[E_STATUS.White.ordinal()][Long.numberOfTrailingZeros(white)];
+            white &= white - 1;
+        }
+        return hash;
+    }
 
-            // １つ隣に相手の石が置かれているか
-            _r += directions[i][1];
-            _c += directions[i][0];
-            if ((_r < 0) || (_r >= ROWS) || (_c < 0) || (_c >= COLS)) {
-                continue;
-            }
-            if (this.cells[_r][_c].getStatus() != Cell.getOppositeStatus(status)) {
-                continue;
-            }
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
-            // ２マス以上離れた場所をチェック
-            while (true) {
-                _r += directions[i][1];
-                _c += directions[i][0];
-                // 板を全て調べても挟めなかった
-                if ((_r < 0) || (_r >= ROWS) || (_c < 0) || (_c >= COLS)) {
-                    break;
-                }
-                //　何も石が置かれていなければ挟めないのが確定
-                if (this.cells[_r][_c].getStatus() == E_STATUS.None) {
-                    break;
-                }
-                // 自分の石があったら挟めるのが確定
-                if (this.cells[_r][_c].getStatus() == status) {
-                    // 挟める石を抽出する
-                    int r2 = r;
-                    int c2 = c;
-                    while (true) {
-                        r2 += directions[i][1];
-                        c2 += directions[i][0];
-                        if (r2 == _r && c2 == _c) {
-                            break;
-                        }
-                        if (!dry_run) {
-                            this.cells[r2][c2].setStatus(status);
-                        }
-                        turn_overed_cells.add(this.cells[r2][c2]);
-                    }
-                    break;
-                }
-            }
+    /**
+     * 挟んだ石をひっくり返す
+     * @return ひっくり返る石のビットマスク
+     */
+    public long turnOver(E_STATUS status, int r, int c, boolean dry_run) {
+        if (status == E_STATUS.None) {
+            return 0;
+        }
+        long flips = calcFlips(getStones(status), getStones(Cell.getOppositeStatus(status)), toSquare(r, c));
+
+        if (!dry_run && flips != 0) {
+            applyFlips(status, 0, flips);
+        }
+
+        return flips;
+    }
+
+    /**
+     * マス sq に打ったときに裏返る石
+     * 横・縦・斜め 2 本の各ラインを 8 ビットに集めて LINE_FLIPS を引く
+     * @param own 打つ側の石
+     * @param opp 相手の石
+     */
+    public static long calcFlips(long own, long opp, int sq) {
+        int r = sq / COLS;
+        int c = sq % COLS;
+        long flips;
+
+        // 横（ライン内の位置は列番号）
+        int shift = r * COLS;
+        flips = (long) (lineFlips(c, (int) (own >>> shift), (int) (opp >>> shift)) & 0xFF) << shift;
+
+        // 縦（ライン内の位置は行番号）
+        int col_own = (int) ((((own >>> c) & FILE_A) * 0x0102040810204080L) >>> 56);
+        int col_opp = (int) ((((opp >>> c) & FILE_A) * 0x0102040810204080L) >>> 56);
+        flips |= COLUMN_BITS[lineFlips(r, col_own, col_opp) & 0xFF] << c;
+
+        // 斜め（各列に 1 マスずつなので、ライン内の位置は列番号）
+        long mask = DIAGONAL_MASKS[sq];
+        int line = lineFlips(c, (int) (((own & mask) * FILE_A) >>> 56), (int) (((opp & mask) * FILE_A) >>> 56)) & 0xFF;
+        flips |= (line * FILE_A) & mask;
+
+        mask = ANTI_DIAGONAL_MASKS[sq];
+        line = lineFlips(c, (int) (((own & mask) * FILE_A) >>> 56), (int) (((opp & mask) * FILE_A) >>> 56)) & 0xFF;
+        flips |= (line * FILE_A) & mask;
+
+        return flips;
+    }
+
+    private static byte lineFlips(int x, int own, int opp) {
+        return LINE_FLIPS[(x << 14) | ((own & 0xFF) << 6) | ((opp >>> 1) & 0x3F)];
+    }
+
+    /**
+     * 挟んだ石をひっくり返し、対象のセル（描画用）を返す
+     */
+    public ArrayList<Cell> turnOverCells(E_STATUS status, int r, int c, boolean dry_run) {
+        ArrayList<Cell> turn_overed_cells = new ArrayList<Cell>();
+
+        long flips = turnOver(status, r, c, dry_run);
+        Cell[][] cells = getCells();
+        while (flips != 0) {
+            int sq = Long.numberOfTrailingZeros(flips);
+            flips &= flips - 1;
+            turn_overed_cells.add(cells[sq / COLS][sq % COLS]);
         }
 
         return turn_overed_cells;
     }
 
     public boolean isCanPut(E_STATUS status, int r, int c) {
-        if (this.cells[r][c].getStatus() != E_STATUS.None) {
+        if (((this.black | this.white) & (1L << toSquare(r, c))) != 0) {
             return false;
         }
-        ArrayList<Cell> turn_overed_cells = turnOverCells(status, r, c, true);
-        return (turn_overed_cells.size() > 0);
+        return (turnOver(status, r, c, true) != 0);
+    }
+
+    /**
+     * 着手可能なマスをビットマスクで取得
+     */
+    public long getMobility(E_STATUS status) {
+        if (status == E_STATUS.None) {
+            return 0;
+        }
+        return calcMobility(getStones(status), getStones(Cell.getOppositeStatus(status)));
+    }
+
+    /**
+     * 着手可能なマスを全方向まとめて求める（シフトとマスクによる並列プレフィックス）
+     * @param own 手番側の石
+     * @param opp 相手側の石
+     */
+    public static long calcMobility(long own, long opp) {
+        long empty = ~(own | opp);
+        // 横・斜め方向は盤の端を越えて回り込まないよう a, h 列を除外する
+        long inner = opp & 0x7E7E7E7E7E7E7E7EL;
+
+        long moves = mobilityLine(own, inner, empty, 1)
+                | mobilityLine(own, opp, empty, 8)
+                | mobilityLine(own, inner, empty, 7)
+                | mobilityLine(own, inner, empty, 9);
+
+        return moves & empty;
+    }
+
+    /**
+     * 1方向（とその逆方向）について、自分の石から相手の石を挟んだ先の空きマスを求める
+     */
+    private static long mobilityLine(long own, long mask, long empty, int shift) {
+        long flipL = mask & (own << shift);
+        long flipR = mask & (own >>> shift);
+        flipL |= mask & (flipL << shift);
+        flipR |= mask & (flipR >>> shift);
+
+        long preL = mask & (mask << shift);
+        long preR = preL >>> shift;
+        int shift2 = shift + shift;
+        flipL |= preL & (flipL << shift2);
+        flipR |= preR & (flipR >>> shift2);
+        flipL |= preL & (flipL << shift2);
+        flipR |= preR & (flipR >>> shift2);
+
+        return (flipL << shift) | (flipR >>> shift);
+    }
+
+    /**
+     * 着手可能な手を探索用の着手リストに格納する
+     */
+    public void getMoves(E_STATUS status, MoveList list) {
+        list.set(getMobility(status));
     }
 
     public ArrayList<HashMap> getCanPutRCs(E_STATUS status) {
         ArrayList<HashMap> list = new ArrayList<HashMap>();
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (!isCanPut(status, r, c)) {
-                    continue;
-                }
-                HashMap map = new HashMap<String, Integer>();
-                map.put("r", r);
-                map.put("c", c);
-                list.add(map);
-            }
+        long moves = getMobility(status);
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            HashMap map = new HashMap<String, Integer>();
+            map.put("r", sq / COLS);
+            map.put("c", sq % COLS);
+            list.add(map);
         }
         return list;
     }
 
     public boolean isCanPutAll(E_STATUS status) {
-        ArrayList<HashMap> list = getCanPutRCs(status);
-        return (list.size() > 0);
+        return (getMobility(status) != 0);
+    }
+
+    /**
+     * 探索用：手番側が指定マスに打ち、手番を交代する
+     * 合法手であることは呼び出し側が保証すること
+     * @param sq マス番号（0〜63）
+     * @return ひっくり返した石のビットマスク（undoMove に渡す）
+     */
+    public long makeMove(int sq) {
+        long flips = turnOver(this.turn, sq / COLS, sq % COLS, true);
+
+        this.undo_turns[this.undo_depth] = this.turn;
+        this.undo_hashes[this.undo_depth] = this.hash;
+        this.undo_flip_scores[this.undo_depth] = applyFlips(this.turn, 1L << sq, flips);
+        this.undo_depth++;
+
+        this.hash ^= ZOBRIST_WHITE_TURN;
+        this.turn = getOppositeTurn();
+
+        return flips;
+    }
+
+    /**
+     * 探索用：makeMove を取り消す
+     * @param sq makeMove に渡したマス番号
+     * @param flips makeMove が返したビットマスク
+     */
+    public void undoMove(int sq, long flips) {
+        this.undo_depth--;
+        E_STATUS mover = this.undo_turns[this.undo_depth];
+        int flipScore = this.undo_flip_scores[this.undo_depth];
+        int n = Long.bitCount(flips);
+        int me = mover.ordinal();
+        int opp = Cell.getOppositeStatus(mover).ordinal();
+        long bit = 1L << sq;
+
+        if (mover == E_STATUS.Black) {
+            this.black &= ~(flips | bit);
+            this.white |= flips;
+        } else {
+            this.white &= ~(flips | bit);
+            this.black |= flips;
+        }
+        this.status_count[me] -= n + 1;
+        this.status_count[opp] += n;
+        this.status_count[E_STATUS.None.ordinal()]++;
+        this.position_score[me] -= SQUARE_SCORES[sq] + flipScore;
+        this.position_score[opp] += flipScore;
+        this.hash = this.undo_hashes[this.undo_depth];
+        updateCells(flips | bit);
+
+        this.turn = mover;
+    }
+
+    /**
+     * 石を置いて返す（石数・位置評価・ハッシュも差分で更新する）
+     * @param placed 新しく置く石のビット（返すだけなら 0）
+     * @param flips ひっくり返す石
+     * @return ひっくり返した石の scores の合計
+     */
+    private int applyFlips(E_STATUS mover, long placed, long flips) {
+        int n = Long.bitCount(flips);
+        int me = mover.ordinal();
+        int opp = Cell.getOppositeStatus(mover).ordinal();
+
+        int flipScore = 0;
+        long flipHash = 0;
+        for (long f = flips; f != 0; f &= f - 1) {
+            int sq = Long.numberOfTrailingZeros(f);
+            flipScore += SQUARE_SCORES[sq];
+            flipHash ^= ZOBRIST_FLIP[sq];
+        }
+        this.hash ^= flipHash;
+
+        if (mover == E_STATUS.Black) {
+            this.black |= flips | placed;
+            this.white &= ~flips;
+        } else {
+            this.white |= flips | placed;
+            this.black &= ~flips;
+        }
+        this.status_count[me] += n;
+        this.status_count[opp] -= n;
+        this.position_score[me] += flipScore;
+        this.position_score[opp] -= flipScore;
+        if (placed != 0) {
+            int sq = Long.numberOfTrailingZeros(placed);
+            this.status_count[me]++;
+            this.status_count[E_STATUS.None.ordinal()]--;
+            this.position_score[me] += SQUARE_SCORES[sq];
+            this.hash ^= ZOBRIST_STONES[me][sq];
+        }
+        updateCells(flips | placed);
+
+        return flipScore;
+    }
+
+    /**
+     * 指定した石の scores の合計
+     */
+    private static int sumScores(long stones) {
+        int score = 0;
+        while (stones != 0) {
+            score += SQUARE_SCORES[Long.numberOfTrailingZeros(stones)];
+            stones &= stones - 1;
+        }
+        return score;
     }
 
     public void changeCell(int r, int c) {
         if (isCanPut(getTurn(), r, c)) {
-            this.cells[r][c].setStatus(getTurn());
+            setCell(r, c, getTurn());
         }
     }
 
+    /**
+     * 石数を盤面から数え直す（差分更新の検証用）
+     */
     public int countStatusCell(E_STATUS status) {
-        int count = 0;
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (cells[r][c].getStatus() != status) {
-                    continue;
-                }
-                count++;
-            }
-        }
+        int count = Long.bitCount(getStones(status));
         this.status_count[status.ordinal()] = count;
         return count;
     }
 
+    /**
+     * 石数と位置評価を盤面から計算し直す
+     */
     public void countCell() {
+        countStatusCell(E_STATUS.None);
         countStatusCell(E_STATUS.Black);
         countStatusCell(E_STATUS.White);
+        this.position_score[E_STATUS.Black.ordinal()] = sumScores(this.black);
+        this.position_score[E_STATUS.White.ordinal()] = sumScores(this.white);
     }
 
     public int getStatusCount(Cell.E_STATUS status) {
         return this.status_count[status.ordinal()];
     }
 
+    /**
+     * 指定した色の石がある位置の scores の合計
+     */
+    public int getPositionScore(E_STATUS status) {
+        return this.position_score[status.ordinal()];
+    }
+
     public int calcScore(E_STATUS status) {
-        int score = 0;
         // 位置による評価
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (cells[r][c].getStatus() != status) {
-                    continue;
-                }
-                score += this.scores[r][c];
-            }
-        }
+        int score = getPositionScore(status);
 
         // 着手可能数（Mobility）による評価
         E_STATUS oppStatus = Cell.getOppositeStatus(status);
-        int myMobility = getCanPutRCs(status).size();
-        int oppMobility = getCanPutRCs(oppStatus).size();
+        int myMobility = Long.bitCount(getMobility(status));
+        int oppMobility = Long.bitCount(getMobility(oppStatus));
         score += (myMobility - oppMobility) * 10;
 
         return score;
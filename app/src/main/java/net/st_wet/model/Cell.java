@@ -1,7 +1,5 @@
 package net.st_wet.model;
 
-import android.graphics.RectF;
-
 public class Cell implements Cloneable
 {
     public enum E_STATUS {
@@ -80,17 +78,15 @@ public class Cell implements Cloneable
         return this.status;
     }
 
-    public RectF getStoneRectF() {
-        float stone_width  = this.width * 0.92f;
-        float stone_height = this.height * 0.92f;
-        float width_rate   =  1 - (this.angle / 90);
-
-        float left   = getCx() - (stone_width / 2) * width_rate;
-        float top    = getCy() - (stone_height / 2);
-        float right  = getCx() + (stone_width / 2) * width_rate;
-        float bottom = getCy() + (stone_height / 2);
+    /**
+     * 石の横幅の半分（裏返しの途中は angle に応じて細くなる）
+     */
+    public float getStoneHalfWidth() {
+        return this.width * 0.92f / 2 * (1 - (this.angle / 90));
+    }
 
-        return new RectF(left, top, right, bottom);
+    public float getStoneHalfHeight() {
+        return this.height * 0.92f / 2;
     }
 
     public String statusToString() {
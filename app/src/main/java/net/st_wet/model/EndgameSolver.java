@@ -0,0 +1,570 @@
+package net.st_wet.model;
+
+/**
+ * 終盤の完全読み専用の探索（Negamax + PVS）
+ * 盤面は「手番側の石」「相手の石」の long 2 つだけで持ち、Board や着手リストは使わない
+ *
+ * - 手の並び：置換表の最善手 → 速さ優先（相手の着手可能数が少ない手）→ 偶数理論（空きが奇数個の象限を先に）→ キラー
+ * - 残り 1〜4 マスは専用の手続きで読む
+ * - 相手の確定石から石差の上限を求め、alpha を超えられなければ打ち切る
+ *
+ * 評価値は手番から見た最終石差（石の数の差。空きマスは数えない）
+ * 置換表は SearchEngine と共有するが、キーは盤面の Zobrist ハッシュとは別に求めるので中盤の値とは混ざらない
+ * SearchEngine が 1 つずつ持ち、時間切れの判定もその SearchEngine に任せる
+ */
+class EndgameSolver
+{
+    private static final int INF = 1000;
+
+    private static final int TT_MIN_EMPTIES = 7;             // 置換表を使う空きマス数の下限
+    static final int DEFAULT_FASTEST_FIRST_EMPTIES = 7;      // 速さ優先で並べる空きマス数の下限（既定値）
+    private static final long TIME_CHECK_MASK = 0xFFF;       // 時間切れを確かめるノード数の間隔 - 1
+
+    private static final long CORNERS = 0x8100000000000081L;
+    private static final long X_SQUARES = 0x0042000000004200L;
+    private static final long C_SQUARES = 0x4281000000008142L;
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = 0x8080808080808080L;
+    private static final long EDGE_ROWS = 0xFF000000000000FFL;
+    private static final long EDGE_FILES = FILE_A | FILE_H;
+    private static final long CENTRAL = 0x007E7E7E7E7E7E00L;
+
+    // 速さ優先を使わない浅いところでの並び（角 → その他 → C → X）
+    private static final long[] SQUARE_CLASSES = {
+            CORNERS, ~(CORNERS | X_SQUARES | C_SQUARES), C_SQUARES, X_SQUARES
+    };
+
+    // 象限（4x4）：0 = 左上, 1 = 右上, 2 = 左下, 3 = 右下
+    private static final long[] QUADRANT_MASKS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+    private static final int[] QUADRANT_BITS = new int[Board.ROWS * Board.COLS];
+    // 空きが奇数個の象限のビット（パリティ）から、その象限のマスを集めたもの
+    private static final long[] PARITY_MASKS = new long[16];
+
+    // 確定石を求めるための斜めのライン
+    private static final long[] DIAGONAL_LINES = new long[Board.ROWS + Board.COLS - 1];
+    private static final long[] ANTI_DIAGONAL_LINES = new long[Board.ROWS + Board.COLS - 1];
+
+    static {
+        for (int sq = 0; sq < Board.ROWS * Board.COLS; sq++) {
+            int r = sq / Board.COLS;
+            int c = sq % Board.COLS;
+            QUADRANT_BITS[sq] = 1 << ((r >= 4 ? 2 : 0) | (c >= 4 ? 1 : 0));
+            DIAGONAL_LINES[r - c + Board.COLS - 1] |= 1L << sq;
+            ANTI_DIAGONAL_LINES[r + c] |= 1L << sq;
+        }
+        for (int parity = 0; parity < 16; parity++) {
+            for (int q = 0; q < 4; q++) {
+                if ((parity & (1 << q)) != 0) {
+                    PARITY_MASKS[parity] |= QUADRANT_MASKS[q];
+                }
+            }
+        }
+    }
+
+    private final SearchEngine owner;
+    private TranspositionTable tt;
+    private boolean usePvs = true;
+    private int fastestFirstEmpties = DEFAULT_FASTEST_FIRST_EMPTIES;
+    private long nodes;
+
+    // 手の並べ替え：キラー（空きマス数ごとに 2 手）
+    // 速さ優先の方がよく効くので、キラーは同点の中での順番にだけ使う（先頭に出すとノード数が増える）
+    private boolean useDynamicOrdering = true;
+    private final int[][] killers = new int[Board.ROWS * Board.COLS + 1][2];
+
+    // 空きマス数ごとの着手と並べ替えのキー（使い回す）
+    private final int[][] moveBuffers = new int[Board.ROWS * Board.COLS + 1][Board.ROWS * Board.COLS];
+    private final int[][] keyBuffers = new int[Board.ROWS * Board.COLS + 1][Board.ROWS * Board.COLS];
+
+    EndgameSolver(SearchEngine owner) {
+        this.owner = owner;
+    }
+
+    void setUsePvs(boolean usePvs) {
+        this.usePvs = usePvs;
+    }
+
+    void setFastestFirstEmpties(int empties) {
+        this.fastestFirstEmpties = empties;
+    }
+
+    int getFastestFirstEmpties() {
+        return this.fastestFirstEmpties;
+    }
+
+    void setUseDynamicOrdering(boolean useDynamicOrdering) {
+        this.useDynamicOrdering = useDynamicOrdering;
+    }
+
+    /**
+     * 思考の開始時：キラーを消す
+     */
+    void startMoveOrdering() {
+        for (int[] k : this.killers) {
+            k[0] = TranspositionTable.NO_MOVE;
+            k[1] = TranspositionTable.NO_MOVE;
+        }
+    }
+
+    long getNodeCount() {
+        return this.nodes;
+    }
+
+    void resetNodeCount() {
+        this.nodes = 0;
+    }
+
+    /**
+     * 完全読み
+     * @param own 手番側の石
+     * @param opp 相手の石
+     * @return 手番から見た最終石差（alpha 以下なら上限、beta 以上なら下限）
+     */
+    int solve(TranspositionTable table, long own, long opp, int alpha, int beta) {
+        this.tt = table;
+        long empty = ~(own | opp);
+        int parity = 0;
+        for (int q = 0; q < 4; q++) {
+            if ((Long.bitCount(empty & QUADRANT_MASKS[q]) & 1) != 0) {
+                parity |= 1 << q;
+            }
+        }
+        return search(own, opp, Math.max(alpha, -INF), Math.min(beta, INF), Long.bitCount(empty), parity);
+    }
+
+    /**
+     * 空きマスが 5 以上の局面
+     * @param n 空きマス数
+     * @param parity 空きが奇数個の象限のビット
+     */
+    private int search(long own, long opp, int alpha, int beta, int n, int parity) {
+        if (n <= 4) {
+            return solveSmall(own, opp, alpha, beta, n, parity);
+        }
+        this.nodes++;
+        if ((this.nodes & TIME_CHECK_MASK) == 0) {
+            this.owner.checkTimeout();
+        }
+        if (this.owner.isTimeout()) {
+            return 0;
+        }
+
+        long moves = Board.calcMobility(own, opp);
+        if (moves == 0) {
+            if (Board.calcMobility(opp, own) == 0) {
+                return finalScore(own, opp);
+            }
+            return -search(opp, own, -beta, -alpha, n, parity);
+        }
+
+        // 確定石による打ち切り：相手の確定石の数だけ上限が下がる（相手の石がすべて確定でも上限が alpha を超えるなら数えない）
+        if (Board.ROWS * Board.COLS - 2 * Long.bitCount(opp) <= alpha) {
+            int upper = Board.ROWS * Board.COLS - 2 * Long.bitCount(stableDiscs(opp, own));
+            if (upper <= alpha) {
+                return upper;
+            }
+        }
+
+        // 置換表
+        TranspositionTable table = this.tt;
+        boolean useTable = (n >= TT_MIN_EMPTIES);
+        long hash = 0;
+        int hashMove = TranspositionTable.NO_MOVE;
+        int alphaOrig = alpha;
+        if (useTable) {
+            hash = hash(own, opp);
+            long entry = table.probe(hash);
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= n) {
+                    int score = TranspositionTable.getScore(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                            || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                            || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] list = this.moveBuffers[n];
+        int count = orderMoves(own, opp, moves, n, parity, hashMove, list);
+
+        int bestScore = -INF;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int sq = list[i];
+            long flips = Board.calcFlips(own, opp, sq);
+            long next = own | flips | (1L << sq);
+            long nextOpp = opp & ~flips;
+            int nextParity = parity ^ QUADRANT_BITS[sq];
+            int score;
+            if (i == 0 || !this.usePvs) {
+                score = -search(nextOpp, next, -beta, -alpha, n - 1, nextParity);
+            } else {
+                score = -search(nextOpp, next, -alpha - 1, -alpha, n - 1, nextParity);
+                if (score > alpha && score < beta) {
+                    score = -search(nextOpp, next, -beta, -alpha, n - 1, nextParity);
+                }
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = sq;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        recordCutoff(n, sq);
+                        break; // Beta cutoff
+                    }
+                }
+            }
+        }
+
+        if (useTable && !this.owner.isTimeout()) {
+            int bound;
+            if (bestScore <= alphaOrig) {
+                bound = TranspositionTable.BOUND_UPPER;
+            } else if (bestScore >= beta) {
+                bound = TranspositionTable.BOUND_LOWER;
+            } else {
+                bound = TranspositionTable.BOUND_EXACT;
+            }
+            table.store(hash, n, bound, bestScore, bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * 手を並べて list に入れる
+     * @return 手の数
+     */
+    private int orderMoves(long own, long opp, long moves, int n, int parity, int hashMove, int[] list) {
+        int count = 0;
+        long odd = PARITY_MASKS[parity];
+
+        if (n < this.fastestFirstEmpties) {
+            // 置換表の最善手を先頭に
+            if (hashMove != TranspositionTable.NO_MOVE && (moves & (1L << hashMove)) != 0) {
+                list[count++] = hashMove;
+                moves &= ~(1L << hashMove);
+            }
+            // 空きが奇数個の象限を先に、その中は角 → その他 → C → X の順
+            for (int pass = 0; pass < 2; pass++) {
+                long region = (pass == 0) ? odd : ~odd;
+                for (long squares : SQUARE_CLASSES) {
+                    long m = moves & region & squares;
+                    while (m != 0) {
+                        list[count++] = Long.numberOfTrailingZeros(m);
+                        m &= m - 1;
+                    }
+                }
+            }
+            return count;
+        }
+
+        // 速さ優先：打ったあとの相手の着手可能数（角は 2 倍に数える）が少ない順
+        // 同数なら奇数の象限を先に、さらに同じならキラーを先に
+        int[] keys = this.keyBuffers[n];
+        int[] k = this.killers[n];
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            int key;
+            if (sq == hashMove) {
+                key = Integer.MIN_VALUE;
+            } else {
+                long flips = Board.calcFlips(own, opp, sq);
+                long replies = Board.calcMobility(opp & ~flips, own | flips | (1L << sq));
+                key = (Long.bitCount(replies) + Long.bitCount(replies & CORNERS)) * 2;
+                if ((odd & (1L << sq)) == 0) {
+                    key++;
+                }
+                if (this.useDynamicOrdering) {
+                    key = (key << 2) + ((sq == k[0]) ? 0 : (sq == k[1]) ? 1 : 2);
+                }
+            }
+            // 挿入ソート
+            int j = count++;
+            while (j > 0 && keys[j - 1] > key) {
+                keys[j] = keys[j - 1];
+                list[j] = list[j - 1];
+                j--;
+            }
+            keys[j] = key;
+            list[j] = sq;
+        }
+        return count;
+    }
+
+    /**
+     * beta カットを起こした手をキラーに記録する（速さ優先で並べる深さのみ）
+     */
+    private void recordCutoff(int n, int sq) {
+        if (!this.useDynamicOrdering || n < this.fastestFirstEmpties) {
+            return;
+        }
+        int[] k = this.killers[n];
+        if (k[0] != sq) {
+            k[1] = k[0];
+            k[0] = sq;
+        }
+    }
+
+    /**
+     * 空きマスが 4 以下の局面：空きマスを集めて専用の手続きへ
+     * 空きが奇数個の象限のマスを先に並べる
+     */
+    private int solveSmall(long own, long opp, int alpha, int beta, int n, int parity) {
+        long empty = ~(own | opp);
+        long odd = empty & PARITY_MASKS[parity];
+        long even = empty & ~odd;
+        int[] x = this.moveBuffers[n];
+        int count = 0;
+        while (odd != 0) {
+            x[count++] = Long.numberOfTrailingZeros(odd);
+            odd &= odd - 1;
+        }
+        while (even != 0) {
+            x[count++] = Long.numberOfTrailingZeros(even);
+            even &= even - 1;
+        }
+
+        switch (n) {
+            case 4:
+                return solve4(own, opp, alpha, beta, x[0], x[1], x[2], x[3]);
+            case 3:
+                return solve3(own, opp, alpha, beta, x[0], x[1], x[2]);
+            case 2:
+                return solve2(own, opp, alpha, beta, x[0], x[1]);
+            case 1:
+                this.nodes++;
+                return solve1(own, opp, x[0]);
+            default:
+                this.nodes++;
+                return finalScore(own, opp);
+        }
+    }
+
+    private int solve4(long own, long opp, int alpha, int beta, int x1, int x2, int x3, int x4) {
+        this.nodes++;
+        int bestScore = -INF;
+        int score;
+        long flips;
+
+        if ((flips = Board.calcFlips(own, opp, x1)) != 0) {
+            score = -solve3(opp & ~flips, own | flips | (1L << x1), -beta, -alpha, x2, x3, x4);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = score;
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        if ((flips = Board.calcFlips(own, opp, x2)) != 0) {
+            score = -solve3(opp & ~flips, own | flips | (1L << x2), -beta, -alpha, x1, x3, x4);
+            if (score >= beta) {
+                return score;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                }
+            }
+        }
+        if ((flips = Board.calcFlips(own, opp, x3)) != 0) {
+            score = -solve3(opp & ~flips, own | flips | (1L << x3), -beta, -alpha, x1, x2, x4);
+            if (score >= beta) {
+                return score;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                }
+            }
+        }
+        if ((flips = Board.calcFlips(own, opp, x4)) != 0) {
+            score = -solve3(opp & ~flips, own | flips | (1L << x4), -beta, -alpha, x1, x2, x3);
+            if (score > bestScore) {
+                bestScore = score;
+            }
+        }
+
+        // パス
+        if (bestScore == -INF) {
+            if (Board.calcMobility(opp, own) == 0) {
+                return finalScore(own, opp);
+            }
+            return -solve4(opp, own, -beta, -alpha, x1, x2, x3, x4);
+        }
+        return bestScore;
+    }
+
+    private int solve3(long own, long opp, int alpha, int beta, int x1, int x2, int x3) {
+        this.nodes++;
+        int bestScore = -INF;
+        int score;
+        long flips;
+
+        if ((flips = Board.calcFlips(own, opp, x1)) != 0) {
+            score = -solve2(opp & ~flips, own | flips | (1L << x1), -beta, -alpha, x2, x3);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = score;
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        if ((flips = Board.calcFlips(own, opp, x2)) != 0) {
+            score = -solve2(opp & ~flips, own | flips | (1L << x2), -beta, -alpha, x1, x3);
+            if (score >= beta) {
+                return score;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                }
+            }
+        }
+        if ((flips = Board.calcFlips(own, opp, x3)) != 0) {
+            score = -solve2(opp & ~flips, own | flips | (1L << x3), -beta, -alpha, x1, x2);
+            if (score > bestScore) {
+                bestScore = score;
+            }
+        }
+
+        // パス
+        if (bestScore == -INF) {
+            if (Board.calcMobility(opp, own) == 0) {
+                return finalScore(own, opp);
+            }
+            return -solve3(opp, own, -beta, -alpha, x1, x2, x3);
+        }
+        return bestScore;
+    }
+
+    private int solve2(long own, long opp, int alpha, int beta, int x1, int x2) {
+        this.nodes++;
+        int bestScore = -INF;
+        int score;
+        long flips;
+
+        if ((flips = Board.calcFlips(own, opp, x1)) != 0) {
+            this.nodes++;
+            score = -solve1(opp & ~flips, own | flips | (1L << x1), x2);
+            if (score >= beta) {
+                return score;
+            }
+            bestScore = score;
+        }
+        if ((flips = Board.calcFlips(own, opp, x2)) != 0) {
+            this.nodes++;
+            score = -solve1(opp & ~flips, own | flips | (1L << x2), x1);
+            if (score > bestScore) {
+                bestScore = score;
+            }
+        }
+
+        // パス
+        if (bestScore == -INF) {
+            if (Board.calcFlips(opp, own, x1) == 0 && Board.calcFlips(opp, own, x2) == 0) {
+                return finalScore(own, opp);
+            }
+            return -solve2(opp, own, -beta, -alpha, x1, x2);
+        }
+        return bestScore;
+    }
+
+    /**
+     * 最後の 1 マス：打てる方が打って終わり
+     */
+    private static int solve1(long own, long opp, int x) {
+        int score = Long.bitCount(own) - Long.bitCount(opp);
+        long flips = Board.calcFlips(own, opp, x);
+        if (flips != 0) {
+            return score + 2 * Long.bitCount(flips) + 1;
+        }
+        flips = Board.calcFlips(opp, own, x);
+        if (flips != 0) {
+            return score - 2 * Long.bitCount(flips) - 1;
+        }
+        return score;
+    }
+
+    private static int finalScore(long own, long opp) {
+        return Long.bitCount(own) - Long.bitCount(opp);
+    }
+
+    /**
+     * own の確定石（少なめに見積もる）
+     * - 角と、辺に沿って確定石に並ぶ辺の石
+     * - 横・縦・斜め 2 本のどの方向も、ラインが埋まっているか隣が確定石である石
+     */
+    static long stableDiscs(long own, long opp) {
+        long filled = own | opp;
+
+        // 埋まっているライン
+        long l = filled & (filled >>> 1);
+        l &= l >>> 2;
+        l &= l >>> 4;
+        long fullH = (l & FILE_A) * 0xFFL;
+        l = filled & (filled >>> 8);
+        l &= l >>> 16;
+        l &= l >>> 32;
+        long fullV = (l & 0xFFL) * FILE_A;
+        long fullD9 = 0;
+        long fullD7 = 0;
+        for (int i = 0; i < DIAGONAL_LINES.length; i++) {
+            if ((filled & DIAGONAL_LINES[i]) == DIAGONAL_LINES[i]) {
+                fullD9 |= DIAGONAL_LINES[i];
+            }
+            if ((filled & ANTI_DIAGONAL_LINES[i]) == ANTI_DIAGONAL_LINES[i]) {
+                fullD7 |= ANTI_DIAGONAL_LINES[i];
+            }
+        }
+
+        // 辺：角と埋まった辺から、辺に沿って広げる
+        long stable = own & (CORNERS | (EDGE_ROWS & fullH) | (EDGE_FILES & fullV));
+        long old;
+        do {
+            old = stable;
+            long h = (((stable << 1) & ~FILE_A) | ((stable >>> 1) & ~FILE_H)) & EDGE_ROWS;
+            long v = ((stable << 8) | (stable >>> 8)) & EDGE_FILES;
+            stable |= own & (h | v);
+        } while (stable != old);
+
+        // 内側
+        stable |= own & CENTRAL & fullH & fullV & fullD7 & fullD9;
+        long central = own & CENTRAL;
+        do {
+            old = stable;
+            long h = (stable >>> 1) | (stable << 1) | fullH;
+            long v = (stable >>> 8) | (stable << 8) | fullV;
+            long d7 = (stable >>> 7) | (stable << 7) | fullD7;
+            long d9 = (stable >>> 9) | (stable << 9) | fullD9;
+            stable |= h & v & d7 & d9 & central;
+        } while (stable != old);
+
+        return stable;
+    }
+
+    /**
+     * 置換表のキー（手番側と相手の石の組から求める）
+     */
+    private static long hash(long own, long opp) {
+        long h = own * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(opp * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return h;
+    }
+}
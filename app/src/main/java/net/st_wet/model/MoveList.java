@@ -0,0 +1,98 @@
+package net.st_wet.model;
+
+/**
+ * 着手リスト（探索用）
+ * マス番号（0〜63）と並べ替え用のスコアを固定長配列に持ち、使い回す
+ */
+public class MoveList
+{
+    // 1局面の合法手は最大でも33手
+    public static final int MAX_MOVES = 34;
+
+    private final int[] squares = new int[MAX_MOVES];
+    private final int[] scores = new int[MAX_MOVES];
+    private int size = 0;
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public void add(int sq) {
+        this.squares[this.size] = sq;
+        this.scores[this.size] = 0;
+        this.size++;
+    }
+
+    /**
+     * 着手可能マスのビットマスクから作り直す（マス番号の昇順）
+     */
+    public void set(long moves) {
+        this.size = 0;
+        while (moves != 0) {
+            add(Long.numberOfTrailingZeros(moves));
+            moves &= moves - 1;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int get(int i) {
+        return this.squares[i];
+    }
+
+    public int getR(int i) {
+        return this.squares[i] / Board.COLS;
+    }
+
+    public int getC(int i) {
+        return this.squares[i] % Board.COLS;
+    }
+
+    public int getScore(int i) {
+        return this.scores[i];
+    }
+
+    public void setScore(int i, int score) {
+        this.scores[i] = score;
+    }
+
+    /**
+     * スコアの高い順に並べ替える（同点は元の順序を保つ）
+     */
+    public void sortByScore() {
+        for (int i = 1; i < this.size; i++) {
+            int sq = this.squares[i];
+            int score = this.scores[i];
+            int j = i - 1;
+            while (j >= 0 && this.scores[j] < score) {
+                this.squares[j + 1] = this.squares[j];
+                this.scores[j + 1] = this.scores[j];
+                j--;
+            }
+            this.squares[j + 1] = sq;
+            this.scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 指定したマスの手を先頭に移す（他の手の順序は保つ）
+     * @return 見つかって移したら true
+     */
+    public boolean moveToFront(int sq) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.squares[i] == sq) {
+                int score = this.scores[i];
+                for (int j = i; j > 0; j--) {
+                    this.squares[j] = this.squares[j - 1];
+                    this.scores[j] = this.scores[j - 1];
+                }
+                this.squares[0] = sq;
+                this.scores[0] = score;
+                return true;
+            }
+        }
+        return false;
+    }
+}
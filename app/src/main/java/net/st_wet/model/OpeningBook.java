@@ -0,0 +1,195 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 定石（序盤の局面ごとの手と評価値）
+ *
+ * バイナリ形式（ビッグエンディアン）：
+ *   ヘッダ：マジック "OBK1"（4 バイト）+ レコード数（4 バイト）
+ *   レコード（20 バイト）：手番側の石 8 バイト + 相手の石 8 バイト + 手 1 バイト + 予約 1 バイト + 評価値 2 バイト
+ * 局面は正規形（手番側・相手の石の 8 通りの対称像のうち最小のもの）で、手も正規形の向きで持つ
+ * レコードは局面（符号なし）の昇順、同じ局面の中では評価値の高い順に並ぶ
+ * 評価値は手番側から見た、その手を打ったあとの値（SearchEngine と同じ単位。石差 1 = 100）
+ *
+ * ファイルはメモリマップした ByteBuffer のまま二分探索するので、読み込みや展開はしない
+ */
+public class OpeningBook
+{
+    public static final int MAGIC = 0x4F424B31;  // "OBK1"
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+    /**
+     * 定石の 1 レコード（書き出し用）
+     */
+    public static final class Entry
+    {
+        final long own;
+        final long opp;
+        final int move;
+        final int score;
+
+        /**
+         * @param own 手番側の石
+         * @param opp 相手の石
+         * @param move 手（マス番号）
+         * @param score 手番側から見た、その手を打ったあとの評価値
+         */
+        public Entry(long own, long opp, int move, int score) {
+            if (score < Short.MIN_VALUE || score > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("score out of range: " + score);
+            }
+            // 正規形の向きにそろえる
+            int sym = Symmetry.canonicalSymmetry(own, opp);
+            this.own = Symmetry.transform(own, sym);
+            this.opp = Symmetry.transform(opp, sym);
+            this.move = Symmetry.transformSquare(move, sym);
+            this.score = score;
+        }
+    }
+
+    /**
+     * @param buffer バイナリ形式の定石（メモリマップしたものなど。位置と上限は変えない）
+     */
+    public OpeningBook(ByteBuffer buffer) {
+        ByteBuffer view = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if (view.capacity() < HEADER_SIZE || view.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not an opening book");
+        }
+        int count = view.getInt(4);
+        if (count < 0 || (long) count * RECORD_SIZE != view.capacity() - HEADER_SIZE) {
+            throw new IllegalArgumentException("invalid record count: " + count);
+        }
+        this.buffer = view;
+        this.count = count;
+    }
+
+    /**
+     * ファイルの一部（offset から length バイト）をメモリマップして開く
+     */
+    public static OpeningBook map(FileChannel channel, long offset, long length) throws IOException {
+        return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * 局面の定石手を、評価値の高い順に out に入れる（スコアは評価値）
+     * 定石にない局面や、合法でない手（壊れたファイル）は入れない
+     * @return 定石手があれば true
+     */
+    public boolean lookup(Board board, MoveList out) {
+        out.clear();
+        E_STATUS turn = board.getTurn();
+        long own = board.getStones(turn);
+        long opp = board.getStones(Cell.getOppositeStatus(turn));
+        int sym = Symmetry.canonicalSymmetry(own, opp);
+        long key0 = Symmetry.transform(own, sym);
+        long key1 = Symmetry.transform(opp, sym);
+        int inverse = Symmetry.inverse(sym);
+        long legal = Board.calcMobility(own, opp);
+
+        for (int i = lowerBound(key0, key1); i < this.count; i++) {
+            int pos = HEADER_SIZE + i * RECORD_SIZE;
+            if (this.buffer.getLong(pos) != key0 || this.buffer.getLong(pos + 8) != key1) {
+                break;
+            }
+            int sq = Symmetry.transformSquare(this.buffer.get(pos + 16) & 0xFF, inverse);
+            if ((legal & (1L << sq)) != 0 && out.size() < MoveList.MAX_MOVES) {
+                out.add(sq);
+                out.setScore(out.size() - 1, this.buffer.getShort(pos + 18));
+            }
+        }
+        return out.size() > 0;
+    }
+
+    /**
+     * 局面が (key0, key1) 以上になる最初のレコード
+     */
+    private int lowerBound(long key0, long key1) {
+        int lo = 0;
+        int hi = this.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int pos = HEADER_SIZE + mid * RECORD_SIZE;
+            if (compare(this.buffer.getLong(pos), this.buffer.getLong(pos + 8), key0, key1) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int compare(long a0, long a1, long b0, long b1) {
+        int cmp = Long.compareUnsigned(a0, b0);
+        return (cmp != 0) ? cmp : Long.compareUnsigned(a1, b1);
+    }
+
+    /**
+     * バイナリ形式で書き出す（並べ替えてから書くので、entries の順は問わない）
+     * 同じ局面・同じ手のレコードが複数あれば、あとのものを使う
+     */
+    public static void write(List<Entry> entries, OutputStream out) throws IOException {
+        // 局面ごとに、手で引ける表にまとめる（あとのレコードで上書き）
+        HashMap<Position, Entry[]> byPosition = new HashMap<>();
+        for (Entry e : entries) {
+            Position key = new Position(e.own, e.opp, E_STATUS.None);
+            Entry[] moves = byPosition.get(key);
+            if (moves == null) {
+                moves = new Entry[Board.ROWS * Board.COLS];
+                byPosition.put(key, moves);
+            }
+            moves[e.move] = e;
+        }
+        ArrayList<Entry> sorted = new ArrayList<>();
+        for (Entry[] moves : byPosition.values()) {
+            for (Entry e : moves) {
+                if (e != null) {
+                    sorted.add(e);
+                }
+            }
+        }
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                int cmp = OpeningBook.compare(a.own, a.opp, b.own, b.opp);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                cmp = Integer.compare(b.score, a.score);
+                return (cmp != 0) ? cmp : Integer.compare(a.move, b.move);
+            }
+        });
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(sorted.size());
+        for (Entry e : sorted) {
+            data.writeLong(e.own);
+            data.writeLong(e.opp);
+            data.writeByte(e.move);
+            data.writeByte(0);
+            data.writeShort(e.score);
+        }
+        data.flush();
+    }
+}
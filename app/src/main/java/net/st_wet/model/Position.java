@@ -0,0 +1,186 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+/**
+ * 局面（不変）
+ * 黒・白それぞれの石のビットマスクと手番だけを持つ。マップのキーにも使える
+ *
+ * 文字列形式：マス (0,0) から行順に 64 文字、'0'=空 '1'=黒 '2'=白（従来の保存形式と同じ）
+ * バイナリ形式：黒 8 バイト + 白 8 バイト（ビッグエンディアン）+ 手番 1 バイトの 17 バイト
+ */
+public final class Position
+{
+    public static final int STRING_LENGTH = Board.ROWS * Board.COLS;
+    public static final int BINARY_LENGTH = 17;
+
+    private static final E_STATUS[] STATUSES = E_STATUS.values();
+
+    private final long black;
+    private final long white;
+    private final E_STATUS turn;
+
+    public Position(long black, long white, E_STATUS turn) {
+        if ((black & white) != 0) {
+            throw new IllegalArgumentException("black and white overlap");
+        }
+        if (turn == null) {
+            throw new NullPointerException("turn");
+        }
+        this.black = black;
+        this.white = white;
+        this.turn = turn;
+    }
+
+    public long getBlack() {
+        return this.black;
+    }
+
+    public long getWhite() {
+        return this.white;
+    }
+
+    public E_STATUS getTurn() {
+        return this.turn;
+    }
+
+    /**
+     * 手番を変えた局面
+     */
+    public Position withTurn(E_STATUS turn) {
+        return (turn == this.turn) ? this : new Position(this.black, this.white, turn);
+    }
+
+    /**
+     * 対称変換した局面
+     * @param sym 変換番号（Symmetry 参照）
+     */
+    public Position transform(int sym) {
+        if (sym == Symmetry.IDENTITY) {
+            return this;
+        }
+        return new Position(Symmetry.transform(this.black, sym), Symmetry.transform(this.white, sym), this.turn);
+    }
+
+    /**
+     * 正規形を与える変換番号
+     * 正規形での手 m は元の局面では Symmetry.transformSquare(m, Symmetry.inverse(sym)) になる
+     */
+    public int canonicalSymmetry() {
+        return Symmetry.canonicalSymmetry(this.black, this.white);
+    }
+
+    /**
+     * 正規形（8 通りの対称像のうち最小のもの）
+     * 対称な局面はすべて同じ正規形になるので、キャッシュや定石のキーに使える
+     */
+    public Position canonical() {
+        return transform(canonicalSymmetry());
+    }
+
+    /**
+     * 64 文字の盤面文字列を読み込む
+     */
+    public static Position parse(CharSequence s, E_STATUS turn) {
+        if (s.length() != STRING_LENGTH) {
+            throw new IllegalArgumentException("board string must be " + STRING_LENGTH + " chars: " + s);
+        }
+        long black = 0;
+        long white = 0;
+        for (int sq = 0; sq < STRING_LENGTH; sq++) {
+            char ch = s.charAt(sq);
+            if (ch == '1') {
+                black |= 1L << sq;
+            } else if (ch == '2') {
+                white |= 1L << sq;
+            } else if (ch != '0') {
+                throw new IllegalArgumentException("invalid board char '" + ch + "' at " + sq);
+            }
+        }
+        return new Position(black, white, turn);
+    }
+
+    /**
+     * 64 文字の盤面文字列を書き出す
+     * @param dst 書き出し先（offset から 64 文字）
+     */
+    public void format(char[] dst, int offset) {
+        for (int sq = 0; sq < STRING_LENGTH; sq++) {
+            long bit = 1L << sq;
+            if ((this.black & bit) != 0) {
+                dst[offset + sq] = '1';
+            } else if ((this.white & bit) != 0) {
+                dst[offset + sq] = '2';
+            } else {
+                dst[offset + sq] = '0';
+            }
+        }
+    }
+
+    /**
+     * 64 文字の盤面文字列（手番は含まない）
+     */
+    public String format() {
+        char[] chars = new char[STRING_LENGTH];
+        format(chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 17 バイトのバイナリ形式で書き出す
+     */
+    public void writeTo(byte[] dst, int offset) {
+        for (int i = 0; i < 8; i++) {
+            dst[offset + i] = (byte) (this.black >>> (56 - i * 8));
+            dst[offset + 8 + i] = (byte) (this.white >>> (56 - i * 8));
+        }
+        dst[offset + 16] = (byte) this.turn.ordinal();
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[BINARY_LENGTH];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * 17 バイトのバイナリ形式を読み込む
+     */
+    public static Position readFrom(byte[] src, int offset) {
+        long black = 0;
+        long white = 0;
+        for (int i = 0; i < 8; i++) {
+            black = (black << 8) | (src[offset + i] & 0xFF);
+            white = (white << 8) | (src[offset + 8 + i] & 0xFF);
+        }
+        int turn = src[offset + 16];
+        if (turn < 0 || turn >= STATUSES.length) {
+            throw new IllegalArgumentException("invalid turn: " + turn);
+        }
+        return new Position(black, white, STATUSES[turn]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position other = (Position) o;
+        return this.black == other.black && this.white == other.white && this.turn == other.turn;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = this.black * 0x9E3779B97F4A7C15L + this.white;
+        h = h * 31 + this.turn.ordinal();
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return format() + ":" + this.turn;
+    }
+}
@@ -0,0 +1,103 @@
+package net.st_wet.model;
+
+/**
+ * Multi-ProbCut の係数（中盤探索の選択的な枝刈り）
+ *
+ * 深さ d の探索値 v_d を、浅い深さ d' の探索値から v_d ≈ a * v_d' + b（誤差の標準偏差 σ）と予想する
+ * 浅い探索で v_d が beta 以上（または alpha 以下）になる見込みが十分高いとわかれば、深く読まずに打ち切る
+ * 1 つの深さに浅い深さを 2 つまで用意し、安い方から試す
+ *
+ * 係数は自己対戦の局面で、段階（空きマス数）と深さの組ごとに回帰して求めた
+ * 作り直すとき：./gradlew :tools:fitProbCut --args="400"（出力を PARAMS に貼る）
+ *   局面：乱数の種 41 の自己対戦（8 割は深さ 2 の最善手、2 割はランダム）から、空きマス 20 を超える局面を 1/4 の確率で段階ごとに 400 個
+ *   値：置換表 16 MB、Multi-ProbCut なしの全幅の窓で、深さ 1〜MAX_DEPTH を探索した値
+ */
+final class ProbCut
+{
+    static final int MIN_DEPTH = 3;
+    static final int MAX_DEPTH = 9;
+    static final int CHECKS = 2;
+
+    // 段階の境目（空きマス数がこれ以上なら、その段階）
+    private static final int[] STAGE_EMPTIES = {46, 36, 26, 0};
+
+    // [段階][深さ - MIN_DEPTH][浅い深さの番号] = {a × 1000, b, σ}
+    // 自己対戦 1 段階 400 局面、深さ 1〜9 の全幅の探索値から
+    private static final int[][][][] PARAMS = {
+            {   // 段階 0
+                {{949, 53, 186}, {0, 0, 0}},  // 3
+                {{1044, 11, 175}, {0, 0, 0}},  // 4
+                {{1065, 417, 223}, {0, 0, 0}},  // 5
+                {{1008, -336, 292}, {1097, -401, 180}},  // 6
+                {{1014, 41, 315}, {1121, -29, 195}},  // 7
+                {{1113, 45, 258}, {1072, 34, 170}},  // 8
+                {{1129, 417, 277}, {1099, 408, 181}},  // 9
+            },
+            {   // 段階 1
+                {{1047, 53, 384}, {0, 0, 0}},  // 3
+                {{1070, 42, 356}, {0, 0, 0}},  // 4
+                {{1099, 409, 436}, {0, 0, 0}},  // 5
+                {{1120, -313, 594}, {1089, -377, 341}},  // 6
+                {{1145, 28, 634}, {1116, -37, 382}},  // 7
+                {{1171, 98, 577}, {1111, 53, 338}},  // 8
+                {{1192, 422, 622}, {1133, 376, 389}},  // 9
+            },
+            {   // 段階 2
+                {{1046, 92, 481}, {0, 0, 0}},  // 3
+                {{1077, 31, 543}, {0, 0, 0}},  // 4
+                {{1123, 364, 645}, {0, 0, 0}},  // 5
+                {{1196, -250, 840}, {1150, -357, 584}},  // 6
+                {{1238, 54, 958}, {1196, -59, 691}},  // 7
+                {{1277, 137, 987}, {1201, 101, 626}},  // 8
+                {{1324, 440, 1119}, {1247, 402, 770}},  // 9
+            },
+            {   // 段階 3
+                {{1050, 124, 656}, {0, 0, 0}},  // 3
+                {{1057, 88, 595}, {0, 0, 0}},  // 4
+                {{1082, 412, 738}, {0, 0, 0}},  // 5
+                {{1155, -159, 1066}, {1108, -297, 680}},  // 6
+                {{1194, 112, 1219}, {1148, -30, 841}},  // 7
+                {{1198, 179, 1176}, {1145, 81, 824}},  // 8
+                {{1246, 498, 1343}, {1194, 397, 983}},  // 9
+            },
+    };
+
+    private ProbCut() {
+    }
+
+    static int stage(int empties) {
+        int stage = 0;
+        while (empties < STAGE_EMPTIES[stage]) {
+            stage++;
+        }
+        return stage;
+    }
+
+    static int stageCount() {
+        return STAGE_EMPTIES.length;
+    }
+
+    /**
+     * 深さ depth を予想する浅い深さ
+     * @param check 0 = 安い方, 1 = 深い方
+     * @return 浅い深さ。使わなければ 0
+     */
+    static int shallowDepth(int depth, int check) {
+        if (check == 0) {
+            return (depth >= 6) ? depth / 2 - 2 : Math.max(1, depth / 2);
+        }
+        return (depth >= 6) ? depth / 2 : 0;
+    }
+
+    static int slope1000(int stage, int depth, int check) {
+        return PARAMS[stage][depth - MIN_DEPTH][check][0];
+    }
+
+    static int intercept(int stage, int depth, int check) {
+        return PARAMS[stage][depth - MIN_DEPTH][check][1];
+    }
+
+    static int sigma(int stage, int depth, int check) {
+        return PARAMS[stage][depth - MIN_DEPTH][check][2];
+    }
+}
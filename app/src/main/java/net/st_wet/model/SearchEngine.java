@@ -0,0 +1,1187 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CPU の探索エンジン（Lv.1〜Lv.3 で共通。レベルごとの違いは Strength 参照）
+ * 中盤の評価関数つき探索と終盤の完全読みを、どちらも Negamax + PVS で行う
+ *
+ * 評価値はすべて「盤面の手番から見た値」で返す
+ * 1 つのインスタンスは 1 スレッドから使う（置換表は対局中使い続ける）
+ *
+ * setThreads で 2 以上を指定すると ForkJoinPool で並列に探索する（ParallelMode 参照）
+ * 各ワーカーは自分の SearchEngine と盤面のコピーを持ち、置換表（ロックなし）を共有する
+ */
+public class SearchEngine
+{
+    public static final int INF = 100000000;
+    private static final int NO_PROBCUT = Integer.MIN_VALUE;
+
+    /**
+     * 並列探索の方式
+     */
+    public enum ParallelMode {
+        ROOT_SPLIT,  // ルートの 2 手目以降をワーカーで分担し、現在の最善値を共有する
+        LAZY_SMP,    // ワーカーも同じ反復深化を深さと手順を少し変えて回し、置換表だけを共有する
+    }
+
+    /**
+     * 終盤の読み切り方（中盤の反復のあとに行う）
+     */
+    public enum EndgameMode {
+        NONE,   // 読み切らない（中盤の探索だけ）
+        WLD,    // 勝ち・負け・引き分けだけを 0 のまわりの狭い窓で読み切る
+        EXACT,  // 勝敗を読み切ったあと、時間があれば石差まで読み切る
+    }
+
+    /**
+     * 末端の評価関数
+     */
+    public enum EvalSet {
+        DISCS,   // 石差だけ（Lv.1）
+        SIMPLE,  // 位置と着手可能数（Board.calcScore。Lv.2）。旧 Lv.2 の探索と同じく、末端も終局もルートの手番から見た値のまま返す
+        FULL,    // 位置・角・X/C打ち・着手可能数・安定石（evaluate。Lv.3）
+    }
+
+    // 評価関数の重み
+    private static final int WEIGHT_POSITION = 10;           // 位置評価の重み
+    private static final int WEIGHT_MOBILITY = 80;           // 着手可能数の重み
+    private static final int WEIGHT_STABLE = 100;            // 安定石の重み
+    private static final int WEIGHT_CORNER = 500;            // 角の重み
+    private static final int WEIGHT_X_SQUARE = -150;         // X打ち（角の斜め隣）のペナルティ
+    private static final int WEIGHT_C_SQUARE = -50;          // C打ち（角の隣）のペナルティ
+
+    private static final int DISC_SCORE = 100;               // 石差 1 あたりの評価値
+    private static final int SIMPLE_DISC_SCORE = 1000;       // SIMPLE の終局の石差 1 あたりの評価値（旧 Lv.2 と同じ）
+    private static final int HISTORY_MAX = 1 << 20;          // 履歴の上限（超えたら手番の表全体を半分に）
+    private static final int KILLER_SCORE = 1 << 30;         // キラー手の並べ替えスコア（履歴より上）
+    private static final double PROBCUT_T = 1.5;             // ProbCut で打ち切る確からしさ（予想が σ の何倍外れたら切るか）
+    private static final int ASPIRATION_WINDOW = 300;        // 反復深化の窓の幅（前回の評価値 ± この値）
+    private static final int ENDGAME_PRE_DEPTH = 4;          // 完全読みの前に手を並べるための探索深さ（最小）
+    private static final int UNSTABLE_SCORE_DROP = 2 * DISC_SCORE;  // 反復で評価値がこれ以上下がったら、時間を延ばす
+    private static final long TIME_CHECK_MASK = 0x3FF;       // 時間切れを確かめるノード数の間隔 - 1
+
+    // マス番号ごとの手の優先度（getMovePriority の表引き版）
+    private static final int[] MOVE_PRIORITY = new int[Board.ROWS * Board.COLS];
+    static {
+        for (int sq = 0; sq < MOVE_PRIORITY.length; sq++) {
+            MOVE_PRIORITY[sq] = getMovePriority(sq / Board.COLS, sq % Board.COLS);
+        }
+    }
+
+    // 探索の深さごとに使い回す着手リスト
+    private final MoveList[] moveLists = new MoveList[Board.ROWS * Board.COLS + 1];
+
+    private volatile TranspositionTable tt;
+
+    // 終盤の完全読み
+    private final EndgameSolver solver = new EndgameSolver(this);
+
+    // PVS（2 手目以降を幅 0 の窓で調べる）を使うか
+    private boolean usePvs = true;
+
+    // Multi-ProbCut（中盤の選択的な枝刈り）を使うか。浅い探索で予想している間は入れ子にしない
+    private boolean useProbCut = true;
+    private boolean inProbCut = false;
+
+    // 末端の評価関数。Multi-ProbCut の係数は FULL で求めたものなので、ほかの評価関数では使わない
+    private EvalSet evalSet = EvalSet.FULL;
+    // SIMPLE の評価値の向き（ルートの手番）
+    private E_STATUS evalTurn;
+
+    // 手の並べ替え：履歴（手番・マスごとに、カットを起こした手へ深さ² を足す）とキラー（空きマス数ごとに 2 手）
+    private boolean useDynamicOrdering = true;
+    private final int[][] history = new int[2][Board.ROWS * Board.COLS];
+    private final int[][] killers = new int[Board.ROWS * Board.COLS + 1][2];
+
+    // 思考の締め切りとタイムアウトフラグ
+    // 時間配分があれば、反復の合間にソフトの締め切りで切り上げる（ワーカーは持たず、呼び出し元が止める）
+    private long deadline;
+    private volatile boolean isTimeout;
+    private TimeManager timeManager;
+
+    // 探索したノード数
+    private long nodes;
+
+    // ルート並列探索用（スレッド数が 1 なら null）
+    // 探索中に作り直さないよう、setThreads の値は次の startSearch で反映する
+    private volatile int threads = 1;
+    private volatile ParallelMode parallelMode = ParallelMode.ROOT_SPLIT;
+    private ForkJoinPool pool;
+    private SearchEngine[] helpers;
+
+    // 反復深化で最後に完了した反復の結果（最善手は同点のものをすべて持つ）
+    private final MoveList rootMoves = new MoveList();
+    private final MoveList bestMoves = new MoveList();
+    private final MoveList iterationMoves = new MoveList();
+    private int bestScore;
+    private int completedDepth;
+    private EndgameMode completedMode = EndgameMode.NONE;
+
+    public SearchEngine() {
+        this(TranspositionTable.sizeMbForHeap(Runtime.getRuntime().maxMemory()));
+    }
+
+    // 並列探索のワーカー用（置換表は親と共有する）
+    private SearchEngine(SearchEngine parent) {
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+        this.tt = parent.tt;
+    }
+
+    /**
+     * @param hashSizeMb 置換表の大きさ（MB）
+     */
+    public SearchEngine(int hashSizeMb) {
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+        this.tt = new TranspositionTable(hashSizeMb);
+    }
+
+    /**
+     * 置換表の大きさを変える（MB）
+     */
+    public void setHashTableSize(int sizeMb) {
+        this.tt = new TranspositionTable(sizeMb);
+    }
+
+    /**
+     * 探索に使うスレッド数（1 なら並列化しない）。次の startSearch から使う
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public void setParallelMode(ParallelMode parallelMode) {
+        this.parallelMode = parallelMode;
+    }
+
+    public ParallelMode getParallelMode() {
+        return this.parallelMode;
+    }
+
+    private void applyThreads() {
+        int current = (this.helpers == null) ? 1 : this.helpers.length;
+        if (current == this.threads) {
+            return;
+        }
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+            this.helpers = null;
+        }
+        if (this.threads > 1) {
+            this.pool = new ForkJoinPool(this.threads);
+            this.helpers = new SearchEngine[this.threads];
+            for (int i = 0; i < this.threads; i++) {
+                this.helpers[i] = new SearchEngine(this);
+            }
+        }
+    }
+
+    public void clearHashTable() {
+        this.tt.clear();
+    }
+
+    /**
+     * PVS を使うかどうか（比較用。通常は true）
+     */
+    public void setUsePvs(boolean usePvs) {
+        this.usePvs = usePvs;
+        this.solver.setUsePvs(usePvs);
+    }
+
+    /**
+     * Multi-ProbCut を使うかどうか（比較用。通常は true）
+     * 使うと中盤の探索値は窓によって少し変わる（全幅の探索と一致しなくなる）
+     */
+    public void setUseProbCut(boolean useProbCut) {
+        this.useProbCut = useProbCut;
+    }
+
+    /**
+     * 末端の評価関数を変える
+     * 置換表の値は評価関数ごとに違うので、変えたら消す
+     */
+    public void setEvalSet(EvalSet evalSet) {
+        if (this.evalSet != evalSet) {
+            this.evalSet = evalSet;
+            this.tt.clear();
+        }
+    }
+
+    public EvalSet getEvalSet() {
+        return this.evalSet;
+    }
+
+    /**
+     * SIMPLE の評価値の向きをルートの手番に合わせる
+     * 向きが変わると置換表の値の意味も変わるので、SIMPLE なら消す
+     */
+    private void setEvalTurn(E_STATUS turn) {
+        if (this.evalSet == EvalSet.SIMPLE && this.evalTurn != turn) {
+            this.tt.clear();
+        }
+        this.evalTurn = turn;
+        if (this.helpers != null) {
+            for (SearchEngine helper : this.helpers) {
+                helper.evalTurn = turn;
+            }
+        }
+    }
+
+    /**
+     * 完全読みで速さ優先（打ったあとの相手の着手可能数が少ない順）に並べる空きマス数の下限
+     * これより空きが少ないところでは偶数理論と静的な順序だけで並べる（相手の着手を数える手間の方が大きい）
+     */
+    public void setFastestFirstEmpties(int empties) {
+        this.solver.setFastestFirstEmpties(empties);
+    }
+
+    /**
+     * 履歴・キラーで手を並べ替えるかどうか（比較用。通常は true）
+     * false なら置換表の最善手と静的な優先度だけで並べる
+     */
+    public void setUseDynamicOrdering(boolean useDynamicOrdering) {
+        this.useDynamicOrdering = useDynamicOrdering;
+        this.solver.setUseDynamicOrdering(useDynamicOrdering);
+    }
+
+    /**
+     * 思考の開始
+     * @param timeLimitMs 思考時間の上限（反復深化は maxDepth まで、またはこの時間まで続ける）
+     */
+    public void startSearch(long timeLimitMs) {
+        startSearch(System.currentTimeMillis() + timeLimitMs, null);
+    }
+
+    /**
+     * 思考の開始（時間配分つき）
+     * ハードの締め切りで打ち切り、中盤の反復はソフトの締め切りや最善手の安定具合で早めに切り上げる
+     * @param timeManager start 済みの時間配分
+     */
+    public void startSearch(TimeManager timeManager) {
+        startSearch(timeManager.getHardDeadline(), timeManager);
+    }
+
+    private void startSearch(long deadline, TimeManager timeManager) {
+        this.deadline = deadline;
+        this.timeManager = timeManager;
+        this.isTimeout = false;
+        this.nodes = 0;
+        this.solver.resetNodeCount();
+        startMoveOrdering();
+        this.tt.newSearch();
+        applyThreads();
+        if (this.helpers != null) {
+            for (SearchEngine helper : this.helpers) {
+                helper.tt = this.tt;
+                helper.setUsePvs(this.usePvs);
+                helper.setUseDynamicOrdering(this.useDynamicOrdering);
+                helper.setUseProbCut(this.useProbCut);
+                helper.evalSet = this.evalSet;
+                helper.setFastestFirstEmpties(this.solver.getFastestFirstEmpties());
+                helper.startMoveOrdering();
+                helper.deadline = this.deadline;
+                helper.isTimeout = false;
+                helper.nodes = 0;
+                helper.solver.resetNodeCount();
+            }
+        }
+    }
+
+    public boolean isTimeout() {
+        return this.isTimeout;
+    }
+
+    /**
+     * 思考を止める（別のスレッドから呼べる）
+     * 探索はすぐに戻り、結果は最後に完了した反復のものになる
+     */
+    public void stop() {
+        this.isTimeout = true;
+        SearchEngine[] workers = this.helpers;
+        if (workers != null) {
+            for (SearchEngine helper : workers) {
+                helper.isTimeout = true;
+            }
+        }
+    }
+
+    public long getNodeCount() {
+        long total = this.nodes + this.solver.getNodeCount();
+        if (this.helpers != null) {
+            for (SearchEngine helper : this.helpers) {
+                total += helper.nodes + helper.solver.getNodeCount();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * タイムアウトチェック（時計を読むので、探索では数千ノードに 1 回だけ呼ぶ）
+     */
+    public boolean checkTimeout() {
+        if (System.currentTimeMillis() > this.deadline) {
+            this.isTimeout = true;
+        }
+        return this.isTimeout;
+    }
+
+    /**
+     * ルートの反復深化
+     * 前の反復の最善手から調べ、前回の評価値のまわりの窓（aspiration window）で探索する
+     * 窓を外れたらその側を開いて調べ直す。時間切れになったら最後に完了した反復の結果を残す
+     *
+     * @param moves ルートの合法手（最善手が先頭になるよう並べ替える）
+     * @param maxDepth 中盤の最大の深さ（完全読みでは、その前にこの深さまで読む）
+     * @param endgame 中盤の反復のあとの読み切り方
+     * @return 最後に完了した反復の評価値（勝敗の読み切りなら、勝ちは 100 以上・負けは -100 以下・引き分けは 0）
+     */
+    public int iterativeDeepening(Board board, MoveList moves, int maxDepth, EndgameMode endgame) {
+        setEvalTurn(board.getTurn());
+        // 最初の並びは優先度順、置換表に前の思考の最善手があればそれを先頭に
+        sortMovesByPriority(moves);
+        long entry = this.tt.probe(board.getHash());
+        if (entry != 0) {
+            moves.moveToFront(TranspositionTable.getMove(entry));
+        }
+
+        if (this.parallelMode == ParallelMode.LAZY_SMP && this.helpers != null) {
+            ArrayList<Future<Void>> futures = startLazySmpHelpers(board, moves, maxDepth, endgame);
+            runIterations(board, moves, maxDepth, endgame, 1);
+            joinLazySmpHelpers(futures);
+        } else {
+            runIterations(board, moves, maxDepth, endgame, 1);
+        }
+
+        return this.bestScore;
+    }
+
+    /**
+     * 反復深化の本体
+     * @param firstIteration 最初の反復（Lazy SMP のワーカーは 1 つ深いところから始めることがある）
+     */
+    private void runIterations(Board board, MoveList moves, int maxDepth, EndgameMode endgame, int firstIteration) {
+        this.bestMoves.clear();
+        this.bestScore = 0;
+        this.completedDepth = 0;
+        this.completedMode = EndgameMode.NONE;
+
+        int empties = board.getStatusCount(E_STATUS.None);
+        // 読み切りの前には中盤と同じ深さまで読んでおく（読み切りが時間切れならその結果を使う）
+        int midgameIterations = maxDepth;
+        int iterations = maxDepth;
+        if (endgame != EndgameMode.NONE) {
+            midgameIterations = Math.min(Math.max(ENDGAME_PRE_DEPTH, maxDepth), empties - 1);
+            iterations = midgameIterations + (endgame == EndgameMode.EXACT ? 2 : 1);
+        }
+        // 時間配分用：最善手が続けて変わらなかった反復の数と、直前の反復にかかった時間
+        int stableIterations = 0;
+        long iterationStart = System.currentTimeMillis();
+        for (int it = Math.min(firstIteration, iterations); it <= iterations; it++) {
+            EndgameMode mode = EndgameMode.NONE;
+            if (it == midgameIterations + 1) {
+                mode = EndgameMode.WLD;
+            } else if (it == midgameIterations + 2) {
+                mode = EndgameMode.EXACT;
+            }
+            boolean exact = (mode != EndgameMode.NONE);
+            int depth = exact ? empties : it;
+
+            int alpha = -INF;
+            int beta = INF;
+            if (mode == EndgameMode.WLD) {
+                // 石差 -1〜1 の窓：外れた側で勝ち・負けがわかり、中なら引き分け
+                alpha = -DISC_SCORE;
+                beta = DISC_SCORE;
+            } else if (mode == EndgameMode.EXACT) {
+                // 勝敗がわかっていれば、その側だけを読む
+                if (this.completedMode == EndgameMode.WLD) {
+                    if (this.bestScore >= DISC_SCORE) {
+                        alpha = 0;
+                    } else if (this.bestScore <= -DISC_SCORE) {
+                        beta = 0;
+                    } else {
+                        alpha = -DISC_SCORE;
+                        beta = DISC_SCORE;
+                    }
+                }
+            } else if (this.completedDepth > 0) {
+                // 初回以外は前回の評価値のまわりの窓で
+                alpha = this.bestScore - ASPIRATION_WINDOW;
+                beta = this.bestScore + ASPIRATION_WINDOW;
+            }
+
+            int score;
+            while (true) {
+                score = searchRoot(board, moves, depth, exact, alpha, beta, this.iterationMoves);
+                if (this.isTimeout || mode == EndgameMode.WLD) {
+                    break;
+                }
+                if (score <= alpha && alpha > -INF) {
+                    alpha = -INF;
+                } else if (score >= beta && beta < INF) {
+                    beta = INF;
+                } else {
+                    break;
+                }
+            }
+            if (this.isTimeout) {
+                break;
+            }
+
+            boolean unstable = false;
+            if (this.completedDepth > 0) {
+                boolean changed = (this.iterationMoves.get(0) != this.bestMoves.get(0));
+                stableIterations = changed ? 0 : stableIterations + 1;
+                unstable = changed || score <= this.bestScore - UNSTABLE_SCORE_DROP;
+            }
+            this.bestScore = score;
+            this.completedDepth = depth;
+            this.completedMode = mode;
+            copyMoves(this.iterationMoves, this.bestMoves);
+            moves.moveToFront(this.bestMoves.get(0));
+
+            // 中盤の次の反復を始めるかは時間配分で決める（読み切りの反復は始めたら締め切りまで続ける）
+            long now = System.currentTimeMillis();
+            if (this.timeManager != null && it < midgameIterations
+                    && !this.timeManager.canStartIteration(now - iterationStart, stableIterations, unstable)) {
+                break;
+            }
+            iterationStart = now;
+        }
+    }
+
+    /**
+     * Lazy SMP：ワーカーにも同じ反復深化を回させる
+     * 奇数番のワーカーは 1 つ深い反復から始め、ルートの手順もワーカーごとにずらす
+     */
+    private ArrayList<Future<Void>> startLazySmpHelpers(Board board, MoveList moves, final int maxDepth, final EndgameMode endgame) {
+        ArrayList<Future<Void>> futures = new ArrayList<>();
+        // 0 番は呼び出し元のスレッドの分なので 1 番から
+        for (int k = 1; k < this.helpers.length; k++) {
+            final SearchEngine helper = this.helpers[k];
+            final Board work = board.clone();
+            final int firstIteration = 1 + (k & 1);
+            helper.isTimeout = false;
+            helper.rootMoves.clear();
+            for (int i = 0; i < moves.size(); i++) {
+                helper.rootMoves.add(moves.get((i + k) % moves.size()));
+            }
+            futures.add(this.pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    helper.runIterations(work, helper.rootMoves, maxDepth, endgame, firstIteration);
+                    return null;
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Lazy SMP のワーカーを止めて待つ
+     * 呼び出し元より深い反復を完了したワーカーがいれば、その結果を使う
+     */
+    private void joinLazySmpHelpers(ArrayList<Future<Void>> futures) {
+        for (int k = 1; k < this.helpers.length; k++) {
+            this.helpers[k].isTimeout = true;
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.isTimeout = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (int k = 1; k < this.helpers.length; k++) {
+            SearchEngine helper = this.helpers[k];
+            if (helper.completedDepth > this.completedDepth
+                    || (helper.completedDepth == this.completedDepth && helper.completedMode.compareTo(this.completedMode) > 0)) {
+                this.bestScore = helper.bestScore;
+                this.completedDepth = helper.completedDepth;
+                this.completedMode = helper.completedMode;
+                copyMoves(helper.bestMoves, this.bestMoves);
+            }
+        }
+    }
+
+    /**
+     * 最後に完了した反復の最善手（同点の手すべて）。1 つも完了していなければ空
+     */
+    public MoveList getBestMoves() {
+        return this.bestMoves;
+    }
+
+    public int getBestScore() {
+        return this.bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * 最後に完了した反復の読み切り方（中盤の反復なら NONE）
+     */
+    public EndgameMode getCompletedMode() {
+        return this.completedMode;
+    }
+
+    /**
+     * 最後に完了した反復と同じ深さで、指定した手の中の最善手（同点の手すべて）を求める
+     * 次善手を選ぶときに、最善手を除いた手を渡して使う
+     * @return 時間内に求まれば true
+     */
+    public boolean searchBestOf(Board board, MoveList moves, MoveList out) {
+        out.clear();
+        if (this.completedDepth == 0 || moves.size() == 0) {
+            return false;
+        }
+        if (this.completedMode == EndgameMode.WLD) {
+            searchRoot(board, moves, this.completedDepth, true, -DISC_SCORE, DISC_SCORE, out);
+        } else {
+            searchRoot(board, moves, this.completedDepth, this.completedMode != EndgameMode.NONE, -INF, INF, out);
+        }
+        return !this.isTimeout;
+    }
+
+    /**
+     * 先読み（ポンダー）：相手の手番の間に、相手の合法手それぞれに対する自分の応手を読んで置換表を埋める
+     * 浅い深さから 1 つずつ深くし、各深さで相手の手をすべて調べる（相手に有利な手から）
+     * 相手が打ったら stop で止める。そのあとの思考は置換表に残った結果から始まる
+     * 並列にはせず、呼び出し元のスレッドだけで読む
+     *
+     * @param board 相手の手番の局面
+     * @param moves 相手の合法手（相手に有利な順に並べ替える）
+     * @param maxDepth 応手を読む最大の深さ
+     * @param endgame 中盤の深さのあとの読み切り方（応手の局面を勝敗の窓で読み切る）
+     * @return 最後まで読めたら true（止められたら false）
+     */
+    public boolean ponder(Board board, MoveList moves, int maxDepth, EndgameMode endgame) {
+        setEvalTurn(board.getOppositeTurn());
+        // 応手の局面の空きマス数
+        int empties = board.getStatusCount(E_STATUS.None) - 1;
+        int midgameIterations = maxDepth;
+        int iterations = maxDepth;
+        if (endgame != EndgameMode.NONE) {
+            midgameIterations = Math.min(maxDepth, empties - 1);
+            iterations = midgameIterations + 1;
+        }
+        sortMovesByPriority(moves);
+        for (int it = 1; it <= iterations; it++) {
+            for (int i = 0; i < moves.size(); i++) {
+                int sq = moves.get(i);
+                long flips = board.makeMove(sq);
+                int score = (it > midgameIterations)
+                        ? solve(board, -DISC_SCORE, DISC_SCORE)
+                        : search(board, it, -INF, INF);
+                board.undoMove(sq, flips);
+                if (this.isTimeout) {
+                    return false;
+                }
+                moves.setScore(i, -score);
+            }
+            moves.sortByScore();
+        }
+        return true;
+    }
+
+    /**
+     * ルートの探索（PVS）
+     * 2 手目以降は「最善値 - 1」を下限にした幅 0 の窓で調べ、同点の手も見分ける
+     * @param exact true なら子局面を完全読みする
+     * @param out 最善値の手（同点の手すべて）
+     * @return 最善値（alpha 以下なら上限、beta 以上なら下限）
+     */
+    private int searchRoot(Board board, MoveList moves, int depth, boolean exact, int alpha, int beta, MoveList out) {
+        this.nodes++;
+        out.clear();
+        int best = -INF;
+
+        for (int i = 0; i < moves.size(); i++) {
+            // 最初の手で最善値の目安がついたら、残りはワーカーで並列に
+            if (i == 1 && this.pool != null && this.parallelMode == ParallelMode.ROOT_SPLIT && best < beta) {
+                return searchSiblingsParallel(board, moves, depth, exact, alpha, beta, out, best);
+            }
+
+            int sq = moves.get(i);
+            long flips = board.makeMove(sq);
+            int score;
+            if (i == 0) {
+                score = -searchChild(board, depth, exact, -beta, -alpha);
+            } else {
+                int a = Math.max(alpha, best - 1);
+                score = -searchChild(board, depth, exact, -a - 1, -a);
+                if (score > a && score < beta) {
+                    score = -searchChild(board, depth, exact, -beta, -a);
+                }
+            }
+            board.undoMove(sq, flips);
+            if (this.isTimeout) {
+                break;
+            }
+
+            if (score > best) {
+                best = score;
+                out.clear();
+                out.add(sq);
+            } else if (score == best) {
+                out.add(sq);
+            }
+            if (best >= beta) {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * ルートの 2 手目以降を並列に調べる（searchRoot の続き）
+     * 各ワーカーは次の手を取っては、共有の最善値をもとにした幅 0 の窓で調べる
+     * @param best 最初の手の評価値（out には最初の手だけが入っている）
+     */
+    private int searchSiblingsParallel(final Board board, final MoveList moves, final int depth, final boolean exact,
+                                       final int alpha, final int beta, MoveList out, int best) {
+        final int n = moves.size();
+        final int[] scores = new int[n];
+        final AtomicInteger next = new AtomicInteger(1);
+        final AtomicInteger sharedBest = new AtomicInteger(best);
+
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (final SearchEngine helper : this.helpers) {
+            final Board work = board.clone();
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < n) {
+                        if (helper.isTimeout || sharedBest.get() >= beta) {
+                            scores[i] = -INF;
+                            continue;
+                        }
+                        int sq = moves.get(i);
+                        long flips = work.makeMove(sq);
+                        int a = Math.max(alpha, sharedBest.get() - 1);
+                        int score = -helper.searchChild(work, depth, exact, -a - 1, -a);
+                        if (score > a && score < beta) {
+                            score = -helper.searchChild(work, depth, exact, -beta, -a);
+                        }
+                        work.undoMove(sq, flips);
+                        scores[i] = helper.isTimeout ? -INF : score;
+                        if (score > a) {
+                            sharedBest.accumulateAndGet(score, Math::max);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : this.pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.isTimeout = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        for (SearchEngine helper : this.helpers) {
+            if (helper.isTimeout) {
+                this.isTimeout = true;
+            }
+        }
+
+        // 逐次版と同じ順で最善値と同点の手を集める
+        for (int i = 1; i < n; i++) {
+            if (scores[i] > best) {
+                best = scores[i];
+                out.clear();
+                out.add(moves.get(i));
+            } else if (scores[i] == best) {
+                out.add(moves.get(i));
+            }
+        }
+        return best;
+    }
+
+    private int searchChild(Board board, int depth, boolean exact, int alpha, int beta) {
+        if (exact) {
+            return solve(board, alpha, beta);
+        }
+        return search(board, depth - 1, alpha, beta);
+    }
+
+    private static void copyMoves(MoveList from, MoveList to) {
+        to.clear();
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.get(i));
+        }
+    }
+
+    /**
+     * 評価関数つき探索（Negamax + PVS）
+     * @param depth 残りの深さ（パスは数えない）
+     * @return 手番から見た評価値
+     */
+    public int search(Board board, int depth, int alpha, int beta) {
+        this.nodes++;
+        if ((this.nodes & TIME_CHECK_MASK) == 0) {
+            checkTimeout();
+        }
+        if (this.isTimeout) {
+            return 0;
+        }
+
+        // 置換表
+        TranspositionTable table = this.tt;
+        int hashMove = TranspositionTable.NO_MOVE;
+        int alphaOrig = alpha;
+        if (depth > 0) {
+            long entry = table.probe(board.getHash());
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    int score = TranspositionTable.getScore(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                            || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                            || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        MoveList moves = moveLists[depth];
+        board.getMoves(board.getTurn(), moves);
+
+        // ゲーム終了判定
+        if (moves.size() == 0 && !board.isCanPutAll(board.getOppositeTurn())) {
+            return evaluateEnd(board);
+        }
+
+        // 深さ0で評価
+        if (depth == 0) {
+            return evaluateLeaf(board);
+        }
+
+        // パス
+        if (moves.size() == 0) {
+            board.changeTurn();
+            int score = -search(board, depth, -beta, -alpha);
+            board.changeTurn();
+            return score;
+        }
+
+        // Multi-ProbCut
+        if (this.useProbCut && !this.inProbCut && this.evalSet == EvalSet.FULL && depth >= ProbCut.MIN_DEPTH && depth <= ProbCut.MAX_DEPTH) {
+            int cut = probCut(board, depth, alpha, beta);
+            if (cut != NO_PROBCUT) {
+                return cut;
+            }
+        }
+
+        // 手を並べ替え（置換表の最善手 → キラー → 履歴 → 角優先、X/C打ち回避）
+        int color = (board.getTurn() == E_STATUS.Black) ? 0 : 1;
+        int ply = board.getStatusCount(E_STATUS.None);
+        orderMoves(moves, color, ply);
+        moves.moveToFront(hashMove);
+
+        int bestScore = -INF;
+        int bestMove = TranspositionTable.NO_MOVE;
+
+        for (int i = 0; i < moves.size(); i++) {
+            if (this.isTimeout) break;
+
+            int sq = moves.get(i);
+            long flips = board.makeMove(sq);
+            int score;
+            if (i == 0 || !this.usePvs) {
+                score = -search(board, depth - 1, -beta, -alpha);
+            } else {
+                // 最初の手より良くないことを幅 0 の窓で確かめ、外れたら調べ直す
+                score = -search(board, depth - 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -search(board, depth - 1, -beta, -alpha);
+                }
+            }
+            board.undoMove(sq, flips);
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = sq;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                recordCutoff(color, ply, sq, depth);
+                break; // Beta cutoff
+            }
+        }
+
+        if (!this.isTimeout) {
+            storeResult(table, board.getHash(), depth, alphaOrig, beta, bestScore, bestMove);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Multi-ProbCut：浅い探索から深い探索の値を予想し、窓の外になる見込みが高ければ打ち切る
+     * @return 打ち切るなら beta または alpha、打ち切らなければ NO_PROBCUT
+     */
+    private int probCut(Board board, int depth, int alpha, int beta) {
+        int stage = ProbCut.stage(board.getStatusCount(E_STATUS.None));
+        int result = NO_PROBCUT;
+        this.inProbCut = true;
+        for (int check = 0; check < ProbCut.CHECKS && result == NO_PROBCUT; check++) {
+            int shallow = ProbCut.shallowDepth(depth, check);
+            if (shallow == 0) {
+                continue;
+            }
+            double a = ProbCut.slope1000(stage, depth, check) / 1000.0;
+            int b = ProbCut.intercept(stage, depth, check);
+            double margin = PROBCUT_T * ProbCut.sigma(stage, depth, check);
+
+            // v_depth >= beta がほぼ確実：浅い値が (beta + margin - b) / a 以上
+            if (beta < INF) {
+                int bound = (int) Math.ceil((beta + margin - b) / a);
+                if (bound < INF && search(board, shallow, bound - 1, bound) >= bound) {
+                    result = beta;
+                    break;
+                }
+            }
+            // v_depth <= alpha がほぼ確実：浅い値が (alpha - margin - b) / a 以下
+            if (alpha > -INF) {
+                int bound = (int) Math.floor((alpha - margin - b) / a);
+                if (bound > -INF && search(board, shallow, bound, bound + 1) <= bound) {
+                    result = alpha;
+                }
+            }
+        }
+        this.inProbCut = false;
+        return result;
+    }
+
+    /**
+     * 履歴・キラーで手を並べ替える（同点は静的な優先度順）
+     * @param color 手番（0 = 黒, 1 = 白）
+     * @param ply キラーの添字（空きマス数）
+     */
+    private void orderMoves(MoveList moves, int color, int ply) {
+        if (!this.useDynamicOrdering) {
+            sortMovesByPriority(moves);
+            return;
+        }
+        int[] h = this.history[color];
+        int[] k = this.killers[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int sq = moves.get(i);
+            int score;
+            if (sq == k[0]) {
+                score = KILLER_SCORE;
+            } else if (sq == k[1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = (h[sq] << 8) + MOVE_PRIORITY[sq];
+            }
+            moves.setScore(i, score);
+        }
+        moves.sortByScore();
+    }
+
+    /**
+     * beta カットを起こした手を履歴とキラーに記録する
+     */
+    private void recordCutoff(int color, int ply, int sq, int depth) {
+        if (!this.useDynamicOrdering) {
+            return;
+        }
+        int[] k = this.killers[ply];
+        if (k[0] != sq) {
+            k[1] = k[0];
+            k[0] = sq;
+        }
+        int[] h = this.history[color];
+        h[sq] += depth * depth;
+        if (h[sq] > HISTORY_MAX) {
+            for (int i = 0; i < h.length; i++) {
+                h[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * 思考の開始時：前の思考の履歴は半分にして残し、キラーは消す
+     */
+    private void startMoveOrdering() {
+        for (int[] h : this.history) {
+            for (int i = 0; i < h.length; i++) {
+                h[i] >>= 1;
+            }
+        }
+        for (int[] k : this.killers) {
+            k[0] = TranspositionTable.NO_MOVE;
+            k[1] = TranspositionTable.NO_MOVE;
+        }
+        this.solver.startMoveOrdering();
+    }
+
+    /**
+     * 終盤の完全読み：石差を最大化する（EndgameSolver で読む）
+     * @return 手番から見た最終石差 × 100（alpha 以下なら上限、beta 以上なら下限）
+     */
+    public int solve(Board board, int alpha, int beta) {
+        E_STATUS turn = board.getTurn();
+        long own = board.getStones(turn);
+        long opp = board.getStones(Cell.getOppositeStatus(turn));
+        // 石差は整数なので、窓は外側の整数に丸めても結果の意味は変わらない
+        int discAlpha = floorDiv(alpha, DISC_SCORE);
+        int discBeta = -floorDiv(-beta, DISC_SCORE);
+        return this.solver.solve(this.tt, own, opp, discAlpha, discBeta) * DISC_SCORE;
+    }
+
+    private static int floorDiv(int x, int y) {
+        int q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+
+    /**
+     * 探索結果を置換表に記録する
+     * @param alpha 探索開始時の alpha
+     */
+    private void storeResult(TranspositionTable table, long hash, int depth, int alpha, int beta, int score, int move) {
+        int bound;
+        if (score <= alpha) {
+            bound = TranspositionTable.BOUND_UPPER;
+        } else if (score >= beta) {
+            bound = TranspositionTable.BOUND_LOWER;
+        } else {
+            bound = TranspositionTable.BOUND_EXACT;
+        }
+        table.store(hash, depth, bound, score, move);
+    }
+
+    /**
+     * 最終石差を計算（手番から見た値）
+     */
+    private int evalFinalScore(Board board) {
+        E_STATUS turn = board.getTurn();
+        int myCount = board.getStatusCount(turn);
+        int oppCount = board.getStatusCount(Cell.getOppositeStatus(turn));
+
+        return (myCount - oppCount) * DISC_SCORE; // 石差を100倍してスコア化
+    }
+
+    /**
+     * 終局の評価（手番から見た石差。SIMPLE だけはルートの手番から見た値）
+     */
+    private int evaluateEnd(Board board) {
+        if (this.evalSet == EvalSet.SIMPLE) {
+            int myCount = board.getStatusCount(this.evalTurn);
+            int oppCount = board.getStatusCount(Cell.getOppositeStatus(this.evalTurn));
+            return (myCount - oppCount) * SIMPLE_DISC_SCORE;
+        }
+        return evalFinalScore(board);
+    }
+
+    /**
+     * 末端の評価（手番から見た値。SIMPLE だけはルートの手番から見た値。評価関数は setEvalSet で選ぶ）
+     */
+    private int evaluateLeaf(Board board) {
+        E_STATUS turn = board.getTurn();
+        switch (this.evalSet) {
+            case DISCS:
+                return evalFinalScore(board);
+            case SIMPLE:
+                return board.calcScore(this.evalTurn);
+            default:
+                return evaluate(board, turn);
+        }
+    }
+
+    /**
+     * Lv.3用の高度な評価関数
+     */
+    public int evaluate(Board board, E_STATUS myTurn) {
+        E_STATUS oppTurn = Cell.getOppositeStatus(myTurn);
+
+        int score = 0;
+
+        // 1. 位置評価（従来のスコア表）
+        int positionScore = board.getPositionScore(myTurn) - board.getPositionScore(oppTurn);
+        score += positionScore * WEIGHT_POSITION;
+
+        // 2. 角の確保
+        int cornerScore = 0;
+        int[][] corners = {{0, 0}, {0, 7}, {7, 0}, {7, 7}};
+        for (int[] corner : corners) {
+            E_STATUS status = board.getStatus(corner[0], corner[1]);
+            if (status == myTurn) {
+                cornerScore += WEIGHT_CORNER;
+            } else if (status == oppTurn) {
+                cornerScore -= WEIGHT_CORNER;
+            }
+        }
+        score += cornerScore;
+
+        // 3. X打ち・C打ちのペナルティ（角が空いている場合のみ）
+        int dangerScore = 0;
+        // 左上角関連
+        if (board.getStatus(0, 0) == E_STATUS.None) {
+            dangerScore += evalDangerSquare(board, 1, 1, myTurn, oppTurn, WEIGHT_X_SQUARE);
+            dangerScore += evalDangerSquare(board, 0, 1, myTurn, oppTurn, WEIGHT_C_SQUARE);
+            dangerScore += evalDangerSquare(board, 1, 0, myTurn, oppTurn, WEIGHT_C_SQUARE);
+        }
+        // 右上角関連
+        if (board.getStatus(0, 7) == E_STATUS.None) {
+            dangerScore += evalDangerSquare(board, 1, 6, myTurn, oppTurn, WEIGHT_X_SQUARE);
+            dangerScore += evalDangerSquare(board, 0, 6, myTurn, oppTurn, WEIGHT_C_SQUARE);
+            dangerScore += evalDangerSquare(board, 1, 7, myTurn, oppTurn, WEIGHT_C_SQUARE);
+        }
+        // 左下角関連
+        if (board.getStatus(7, 0) == E_STATUS.None) {
+            dangerScore += evalDangerSquare(board, 6, 1, myTurn, oppTurn, WEIGHT_X_SQUARE);
+            dangerScore += evalDangerSquare(board, 7, 1, myTurn, oppTurn, WEIGHT_C_SQUARE);
+            dangerScore += evalDangerSquare(board, 6, 0, myTurn, oppTurn, WEIGHT_C_SQUARE);
+        }
+        // 右下角関連
+        if (board.getStatus(7, 7) == E_STATUS.None) {
+            dangerScore += evalDangerSquare(board, 6, 6, myTurn, oppTurn, WEIGHT_X_SQUARE);
+            dangerScore += evalDangerSquare(board, 7, 6, myTurn, oppTurn, WEIGHT_C_SQUARE);
+            dangerScore += evalDangerSquare(board, 6, 7, myTurn, oppTurn, WEIGHT_C_SQUARE);
+        }
+        score += dangerScore;
+
+        // 4. 着手可能数（Mobility）
+        int myMobility = Long.bitCount(board.getMobility(myTurn));
+        int oppMobility = Long.bitCount(board.getMobility(oppTurn));
+        score += (myMobility - oppMobility) * WEIGHT_MOBILITY;
+
+        // 5. 安定石（確定石）の評価
+        int stableScore = countStableDiscs(board, myTurn) - countStableDiscs(board, oppTurn);
+        score += stableScore * WEIGHT_STABLE;
+
+        return score;
+    }
+
+    /**
+     * 危険マス（X打ち、C打ち）の評価
+     */
+    private int evalDangerSquare(Board board, int r, int c, E_STATUS myTurn, E_STATUS oppTurn, int weight) {
+        E_STATUS status = board.getStatus(r, c);
+        if (status == myTurn) {
+            return weight; // 自分が置いている → ペナルティ
+        } else if (status == oppTurn) {
+            return -weight; // 相手が置いている → ボーナス
+        }
+        return 0;
+    }
+
+    /**
+     * 安定石（もう返されない石）の数を数える
+     * 簡易版：角からの連続した石をカウント
+     */
+    private int countStableDiscs(Board board, E_STATUS turn) {
+        int count = 0;
+
+        // 4つの角からそれぞれ安定石を数える
+        // 左上角から
+        count += countStableFromCorner(board, turn, 0, 0, 1, 1);
+        // 右上角から
+        count += countStableFromCorner(board, turn, 0, 7, 1, -1);
+        // 左下角から
+        count += countStableFromCorner(board, turn, 7, 0, -1, 1);
+        // 右下角から
+        count += countStableFromCorner(board, turn, 7, 7, -1, -1);
+
+        return count;
+    }
+
+    /**
+     * 角から連続する安定石を数える
+     */
+    private int countStableFromCorner(Board board, E_STATUS turn, int startR, int startC, int dr, int dc) {
+        if (board.getStatus(startR, startC) != turn) {
+            return 0;
+        }
+
+        int count = 0;
+
+        // 角から辺に沿って連続する石を数える
+        // 縦方向
+        int r = startR;
+        while (r >= 0 && r < Board.ROWS && board.getStatus(r, startC) == turn) {
+            count++;
+            r += dr;
+        }
+
+        // 横方向
+        int c = startC + dc;
+        while (c >= 0 && c < Board.COLS && board.getStatus(startR, c) == turn) {
+            count++;
+            c += dc;
+        }
+
+        return count;
+    }
+
+    /**
+     * 手を優先度順に並べ替え（角優先、X/C打ち回避）
+     */
+    public static void sortMovesByPriority(MoveList moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            moves.setScore(i, MOVE_PRIORITY[moves.get(i)]);
+        }
+        moves.sortByScore(); // 高い優先度が先
+    }
+
+    /**
+     * 手の優先度を返す
+     */
+    private static int getMovePriority(int r, int c) {
+        // 角は最優先
+        if ((r == 0 || r == 7) && (c == 0 || c == 7)) {
+            return 100;
+        }
+        // 辺は次に優先
+        if (r == 0 || r == 7 || c == 0 || c == 7) {
+            // ただしC打ちは低優先
+            if ((r == 0 || r == 7) && (c == 1 || c == 6)) return -10;
+            if ((r == 1 || r == 6) && (c == 0 || c == 7)) return -10;
+            return 50;
+        }
+        // X打ちは最低優先
+        if ((r == 1 || r == 6) && (c == 1 || c == 6)) {
+            return -50;
+        }
+        // その他は中程度
+        return 0;
+    }
+}
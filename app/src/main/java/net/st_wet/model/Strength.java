@@ -0,0 +1,126 @@
+package net.st_wet.model;
+
+import net.st_wet.model.SearchEngine.EndgameMode;
+import net.st_wet.model.SearchEngine.EvalSet;
+
+/**
+ * CPU の強さ（Lv.1〜Lv.3 で同じ SearchEngine を使い、読む深さ・評価関数・揺らぎだけを変える）
+ */
+public class Strength
+{
+    // Lv.1：1 手だけ読み、いちばん多く返せる手を選びがち。30% はでたらめに打つ
+    public static final Strength LV1 = new Strength(1, EvalSet.DISCS, 0, 0, 0, 100, false, 30, 0, false, false, false);
+    // Lv.2：3 手読み（位置と着手可能数の簡単な評価関数。評価値は旧 Lv.2 の探索と同じ）。10% は次善手。定石は使わない
+    public static final Strength LV2 = new Strength(3, EvalSet.SIMPLE, 0, 0, 0, 200, false, 0, 10, false, false, false);
+    // Lv.3：Multi-ProbCut つきで 12 手読み、終盤は勝敗 → 石差を読み切る。5% は次善手
+    public static final Strength LV3 = new Strength(12, EvalSet.FULL, 20, 22, 7, 8000, true, 0, 5, true, true, true);
+
+    private final int maxDepth;
+    private final EvalSet evalSet;
+    private final int exactEmpties;
+    private final int wldEmpties;
+    private final int endgamePreDepth;
+    private final long timeLimitMs;
+    private final boolean timeManaged;
+    private final int randomRate;
+    private final int suboptimalRate;
+    private final boolean useBook;
+    private final boolean ponder;
+    private final boolean parallel;
+
+    /**
+     * @param maxDepth 序盤・中盤の探索深さ
+     * @param evalSet 評価関数
+     * @param exactEmpties 空きマスがこれ以下なら石差まで読み切る（0 なら読み切らない）
+     * @param wldEmpties 空きマスがこれ以下なら勝敗を読み切る（0 なら読み切らない）
+     * @param endgamePreDepth 読み切りの前に読む深さ
+     * @param timeLimitMs 1 手の思考時間の上限
+     * @param timeManaged true なら上限の中の配分を TimeManager が決める。false なら maxDepth まで読む（上限は打ち切りの保険）
+     * @param randomRate 読まずにでたらめに打つ確率（%）
+     * @param suboptimalRate 次善手を選ぶ確率（%）
+     * @param useBook 定石を使うか
+     * @param ponder 相手の手番の間に先読みするか
+     * @param parallel 探索を並列にするか（しなければ 1 スレッド）
+     */
+    public Strength(int maxDepth, EvalSet evalSet, int exactEmpties, int wldEmpties, int endgamePreDepth,
+                    long timeLimitMs, boolean timeManaged, int randomRate, int suboptimalRate,
+                    boolean useBook, boolean ponder, boolean parallel) {
+        this.maxDepth = maxDepth;
+        this.evalSet = evalSet;
+        this.exactEmpties = exactEmpties;
+        this.wldEmpties = wldEmpties;
+        this.endgamePreDepth = endgamePreDepth;
+        this.timeLimitMs = timeLimitMs;
+        this.timeManaged = timeManaged;
+        this.randomRate = randomRate;
+        this.suboptimalRate = suboptimalRate;
+        this.useBook = useBook;
+        this.ponder = ponder;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param level 1〜3（範囲外は Lv.2）
+     */
+    public static Strength forLevel(int level) {
+        switch (level) {
+            case 1:
+                return LV1;
+            case 3:
+                return LV3;
+            default:
+                return LV2;
+        }
+    }
+
+    /**
+     * 空きマス数に応じた読み切り方
+     */
+    public EndgameMode getEndgameMode(int empties) {
+        if (empties <= this.exactEmpties) {
+            return EndgameMode.EXACT;
+        } else if (empties <= this.wldEmpties) {
+            return EndgameMode.WLD;
+        }
+        return EndgameMode.NONE;
+    }
+
+    /**
+     * 読み切り方に応じた中盤の探索深さ
+     */
+    public int getMaxDepth(EndgameMode endgame) {
+        return (endgame == EndgameMode.NONE) ? this.maxDepth : this.endgamePreDepth;
+    }
+
+    public EvalSet getEvalSet() {
+        return this.evalSet;
+    }
+
+    public long getTimeLimitMs() {
+        return this.timeLimitMs;
+    }
+
+    public boolean isTimeManaged() {
+        return this.timeManaged;
+    }
+
+    public int getRandomRate() {
+        return this.randomRate;
+    }
+
+    public int getSuboptimalRate() {
+        return this.suboptimalRate;
+    }
+
+    public boolean useBook() {
+        return this.useBook;
+    }
+
+    public boolean ponder() {
+        return this.ponder;
+    }
+
+    public boolean isParallel() {
+        return this.parallel;
+    }
+}
@@ -0,0 +1,134 @@
+package net.st_wet.model;
+
+/**
+ * 盤面の対称変換（正方形の二面体群 D4 の 8 通り）
+ *
+ * 変換番号 sym は 3 ビットで表す
+ *   bit2: 転置（(r,c) → (c,r)）
+ *   bit0: 左右反転（c → 7-c）
+ *   bit1: 上下反転（r → 7-r）
+ * の順に適用する。0 は恒等変換
+ */
+public final class Symmetry
+{
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    private static final int FLIP_HORIZONTAL = 1;
+    private static final int FLIP_VERTICAL = 2;
+    private static final int TRANSPOSE = 4;
+
+    private static final int[] INVERSE = new int[COUNT];
+    static {
+        for (int sym = 0; sym < COUNT; sym++) {
+            // (0,1) はどの対称軸にも乗らないので、これが戻れば逆変換
+            for (int inv = 0; inv < COUNT; inv++) {
+                if (transformSquare(transformSquare(1, sym), inv) == 1) {
+                    INVERSE[sym] = inv;
+                    break;
+                }
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * 上下反転（行の並びを逆にする）
+     */
+    public static long flipVertical(long x) {
+        return Long.reverseBytes(x);
+    }
+
+    /**
+     * 左右反転（各行の中で列の並びを逆にする）
+     */
+    public static long flipHorizontal(long x) {
+        x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return x;
+    }
+
+    /**
+     * 転置（(0,0)-(7,7) の対角線で折り返す）
+     */
+    public static long transpose(long x) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (x ^ (x << 28));
+        x ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (x ^ (x << 14));
+        x ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (x ^ (x << 7));
+        x ^= t ^ (t >>> 7);
+        return x;
+    }
+
+    /**
+     * ビットマスクに変換 sym を適用する
+     */
+    public static long transform(long x, int sym) {
+        if ((sym & TRANSPOSE) != 0) {
+            x = transpose(x);
+        }
+        if ((sym & FLIP_HORIZONTAL) != 0) {
+            x = flipHorizontal(x);
+        }
+        if ((sym & FLIP_VERTICAL) != 0) {
+            x = flipVertical(x);
+        }
+        return x;
+    }
+
+    /**
+     * マス番号に変換 sym を適用する
+     */
+    public static int transformSquare(int sq, int sym) {
+        int r = sq / Board.COLS;
+        int c = sq % Board.COLS;
+        if ((sym & TRANSPOSE) != 0) {
+            int t = r;
+            r = c;
+            c = t;
+        }
+        if ((sym & FLIP_HORIZONTAL) != 0) {
+            c = Board.COLS - 1 - c;
+        }
+        if ((sym & FLIP_VERTICAL) != 0) {
+            r = Board.ROWS - 1 - r;
+        }
+        return r * Board.COLS + c;
+    }
+
+    /**
+     * 逆変換の番号
+     */
+    public static int inverse(int sym) {
+        return INVERSE[sym];
+    }
+
+    /**
+     * 正規形を与える変換番号
+     * 8 通りの像のうち (黒, 白) を符号なしで辞書順比較して最小になるもの
+     */
+    public static int canonicalSymmetry(long black, long white) {
+        int best = IDENTITY;
+        long bestBlack = black;
+        long bestWhite = white;
+        for (int sym = 1; sym < COUNT; sym++) {
+            long b = transform(black, sym);
+            int cmp = Long.compareUnsigned(b, bestBlack);
+            if (cmp > 0) {
+                continue;
+            }
+            long w = transform(white, sym);
+            if (cmp < 0 || Long.compareUnsigned(w, bestWhite) < 0) {
+                best = sym;
+                bestBlack = b;
+                bestWhite = w;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,108 @@
+package net.st_wet.model;
+
+/**
+ * Lv.3 の 1 手の思考時間の配分
+ *
+ * 締め切りを 2 つ決める
+ * - ソフト：これを過ぎたら中盤の次の反復を始めない
+ *   最善手が何度も変わらなければ早めに、最善手や評価値が揺れていれば遅めに切り上げる
+ * - ハード：探索中でもここで打ち切る（最後に完了した反復の結果を使う）
+ *
+ * 配分は空きマス数（局面の段階）と合法手の数で決める
+ * 序盤は短く、読み切りに入る手前の中盤がいちばん長い。手が少なければ短く、多ければ長くする
+ */
+public class TimeManager
+{
+    // 段階の境目（空きマス数がこれ以上なら、その段階）と、段階ごとのソフトの締め切り（上限に対する千分率）
+    private static final int[] PHASE_EMPTIES = {50, 40, 30, 0};
+    private static final int[] PHASE_SOFT_PERMILLE = {100, 250, 400, 600};
+    // 段階ごとのハードの締め切り（ソフトの何倍まで延ばせるか。0 なら上限まで）
+    private static final int[] PHASE_HARD_FACTOR = {3, 3, 3, 0};
+
+    private static final int BASE_MOVE_COUNT = 6;           // 合法手がこの数のとき、段階どおりの配分
+    private static final int MIN_MOVE_PERMILLE = 500;       // 合法手の数による伸び縮みの下限（千分率）
+    private static final int MAX_MOVE_PERMILLE = 1500;      // 同・上限
+
+    private static final int STABLE_ITERATIONS = 3;         // 最善手がこの回数続けて変わらなければ、ソフトを縮め始める
+    private static final int MAX_STABLE_SHIFT = 4;          // 縮めるのは 1/16 まで
+    private static final int NEXT_ITERATION_FACTOR = 3;     // 次の反復は直前の反復のこの倍くらいかかるとみる
+
+    private final long maxTimeMs;
+    private long startTime;
+    private long softLimitMs;
+    private long hardLimitMs;
+
+    /**
+     * @param maxTimeMs 1 手の思考時間の上限
+     */
+    public TimeManager(long maxTimeMs) {
+        this.maxTimeMs = maxTimeMs;
+    }
+
+    /**
+     * 思考の開始。この局面の締め切りを決める
+     * @param empties 空きマス数
+     * @param moveCount 合法手の数
+     */
+    public void start(int empties, int moveCount) {
+        this.startTime = System.currentTimeMillis();
+
+        int phase = 0;
+        while (empties < PHASE_EMPTIES[phase]) {
+            phase++;
+        }
+        int movePermille = 1000 * (moveCount + BASE_MOVE_COUNT - 2) / (2 * BASE_MOVE_COUNT - 2);
+        movePermille = Math.max(MIN_MOVE_PERMILLE, Math.min(MAX_MOVE_PERMILLE, movePermille));
+
+        this.softLimitMs = Math.min(this.maxTimeMs, this.maxTimeMs * PHASE_SOFT_PERMILLE[phase] / 1000 * movePermille / 1000);
+        this.hardLimitMs = this.maxTimeMs;
+        if (PHASE_HARD_FACTOR[phase] > 0) {
+            this.hardLimitMs = Math.min(this.maxTimeMs, this.softLimitMs * PHASE_HARD_FACTOR[phase]);
+        }
+    }
+
+    public long getSoftLimitMs() {
+        return this.softLimitMs;
+    }
+
+    public long getHardLimitMs() {
+        return this.hardLimitMs;
+    }
+
+    /**
+     * ハードの締め切りの時刻（System.currentTimeMillis の値）
+     */
+    public long getHardDeadline() {
+        return this.startTime + this.hardLimitMs;
+    }
+
+    public long getElapsedMs() {
+        return System.currentTimeMillis() - this.startTime;
+    }
+
+    /**
+     * 中盤の次の反復を始めてよいか
+     * @param lastIterationMs 直前に完了した反復にかかった時間
+     * @param stableIterations 最善手が続けて変わらなかった反復の数
+     * @param unstable 直前の反復で最善手が変わったか、評価値が大きく下がったか
+     */
+    public boolean canStartIteration(long lastIterationMs, int stableIterations, boolean unstable) {
+        return canStartIteration(getElapsedMs(), lastIterationMs, stableIterations, unstable);
+    }
+
+    boolean canStartIteration(long elapsedMs, long lastIterationMs, int stableIterations, boolean unstable) {
+        long limit = this.softLimitMs;
+        if (unstable) {
+            // 揺れている局面はソフトの 2 倍（ハードの締め切りまで）延ばしてよい
+            limit = Math.min(this.hardLimitMs, this.softLimitMs * 2);
+        } else if (stableIterations >= STABLE_ITERATIONS) {
+            // 最善手が変わらないほど早めに切り上げる
+            limit = this.softLimitMs >> Math.min(MAX_STABLE_SHIFT, stableIterations - STABLE_ITERATIONS + 1);
+        }
+        if (elapsedMs >= limit) {
+            return false;
+        }
+        // ハードの締め切りまでに終わりそうにない反復は始めない（途中で打ち切ると結果を使えない）
+        return elapsedMs + lastIterationMs * NEXT_ITERATION_FACTOR < this.hardLimitMs;
+    }
+}
@@ -0,0 +1,149 @@
+package net.st_wet.model;
+
+import java.util.Arrays;
+
+/**
+ * 置換表（探索用）
+ * Zobrist ハッシュをキーに、探索済み局面の深さ・評価値・境界の種類・最善手を覚えておく
+ *
+ * 2 エントリで 1 バケット。0 番は深さ優先（深いものを残す）、1 番は常に上書き
+ * 1 エントリはキーとデータの long 2 つ（16 バイト）で、キーにはデータとの XOR を入れる
+ * 並列探索ではロックなしで共有する。書き込みが競合して組が崩れても XOR が合わないので、読み出し側では外れになる
+ *
+ * データのビット配置
+ *   0〜31  評価値
+ *   32〜39 深さ
+ *   40〜41 境界の種類（BOUND_*）
+ *   42〜48 最善手のマス番号（NO_MOVE = なし）
+ *   49〜56 世代（newSearch ごとに進む）
+ */
+public class TranspositionTable
+{
+    public static final int BOUND_EXACT = 1;  // 正確な値
+    public static final int BOUND_LOWER = 2;  // 下限（beta カット）
+    public static final int BOUND_UPPER = 3;  // 上限（alpha を超えなかった）
+
+    public static final int NO_MOVE = 64;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int MAX_DEPTH = 0xFF;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation = 0;
+
+    /**
+     * @param sizeMb 表の大きさ（MB）。2 のべき乗のエントリ数に切り下げる
+     */
+    public TranspositionTable(int sizeMb) {
+        long entries = Math.max(2, (long) Math.max(1, sizeMb) * 1024 * 1024 / ENTRY_BYTES);
+        int n = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[n];
+        this.data = new long[n];
+        this.bucketMask = (n / 2) - 1;
+    }
+
+    /**
+     * ヒープ上限に応じた大きさ（MB）：上限の 1/16 を 1〜32MB に収める
+     */
+    public static int sizeMbForHeap(long maxHeapBytes) {
+        long mb = maxHeapBytes / (16L * 1024 * 1024);
+        return (int) Math.max(1, Math.min(32, mb));
+    }
+
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * 新しい探索の開始（古い世代のエントリを優先して置き換える）
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0);
+        Arrays.fill(this.data, 0);
+    }
+
+    /**
+     * @return 見つかったエントリのデータ。なければ 0
+     */
+    public long probe(long hash) {
+        int i = index(hash);
+        for (int slot = i; slot < i + 2; slot++) {
+            long d = this.data[slot];
+            if (d != 0 && (this.keys[slot] ^ d) == hash) {
+                return d;
+            }
+        }
+        return 0;
+    }
+
+    public void store(long hash, int depth, int bound, int score, int move) {
+        long d = pack(depth, bound, score, move, this.generation);
+        int i = index(hash);
+
+        // 同じ局面があればそこを更新（最善手がなければ前の手を残す）
+        for (int slot = i; slot < i + 2; slot++) {
+            long old = this.data[slot];
+            if (old != 0 && (this.keys[slot] ^ old) == hash) {
+                if (move == NO_MOVE) {
+                    d = pack(depth, bound, score, getMove(old), this.generation);
+                }
+                if (slot == i && depth < getDepth(old) && getGeneration(old) == this.generation) {
+                    break;  // 深い方を残し、常に上書きの方へ
+                }
+                write(slot, hash, d);
+                return;
+            }
+        }
+
+        // 深さ優先：より深いか、古い世代なら置き換える
+        long old = this.data[i];
+        if (old == 0 || depth >= getDepth(old) || getGeneration(old) != this.generation) {
+            write(i, hash, d);
+        } else {
+            write(i + 1, hash, d);
+        }
+    }
+
+    public static int getScore(long data) {
+        return (int) data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data >>> 42) & 0x7F;
+    }
+
+    private static int getGeneration(long data) {
+        return (int) (data >>> 49) & 0xFF;
+    }
+
+    private static long pack(int depth, int bound, int score, int move, int generation) {
+        return (score & 0xFFFFFFFFL)
+                | ((long) Math.min(depth, MAX_DEPTH) << 32)
+                | ((long) bound << 40)
+                | ((long) move << 42)
+                | ((long) generation << 49);
+    }
+
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & this.bucketMask) << 1;
+    }
+
+    private void write(int slot, long hash, long d) {
+        this.data[slot] = d;
+        this.keys[slot] = hash ^ d;
+    }
+}
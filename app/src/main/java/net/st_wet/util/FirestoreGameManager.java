@@ -3,6 +3,9 @@ package net.st_wet.util;
 import android.provider.Settings;
 import android.content.Context;
 import android.util.Log;
+import net.st_wet.model.Board;
+import net.st_wet.model.Cell;
+import net.st_wet.model.Position;
 
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -101,37 +104,24 @@ public class FirestoreGameManager {
      * @param handicapCount 角の数（1-4）
      */
     public static String getInitialBoardWithHandicap(int handicapTarget, int handicapCount) {
-        // 初期盤面: 0=空, 1=黒, 2=白
-        char[][] board = new char[8][8];
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                board[r][c] = '0';
-            }
-        }
-
-        // 中央4マスの初期配置
-        board[3][3] = '2';  // 白
-        board[3][4] = '1';  // 黒
-        board[4][3] = '1';  // 黒
-        board[4][4] = '2';  // 白
+        // 中央4マスの初期配置（0=空, 1=黒, 2=白 の文字列で (3,3) が白）
+        long black = (1L << Board.toSquare(3, 4)) | (1L << Board.toSquare(4, 3));
+        long white = (1L << Board.toSquare(3, 3)) | (1L << Board.toSquare(4, 4));
 
         // ハンディキャップ（角）の配置
         if (handicapTarget != 0 && handicapCount > 0) {
-            char handicapColor = (handicapTarget == 1) ? '1' : '2';  // 1=黒にハンデ, 2=白にハンデ
             int[][] corners = {{0, 0}, {7, 7}, {0, 7}, {7, 0}};  // 左上, 右下, 右上, 左下
             for (int i = 0; i < handicapCount && i < 4; i++) {
-                board[corners[i][0]][corners[i][1]] = handicapColor;
+                long bit = 1L << Board.toSquare(corners[i][0], corners[i][1]);
+                if (handicapTarget == 1) {  // 1=黒にハンデ, 2=白にハンデ
+                    black |= bit;
+                } else {
+                    white |= bit;
+                }
             }
         }
 
-        // 文字列に変換
-        StringBuilder sb = new StringBuilder();
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                sb.append(board[r][c]);
-            }
-        }
-        return sb.toString();
+        return new Position(black, white, Cell.E_STATUS.Black).format();
     }
 
     public void createRoom(OnRoomCreatedListener listener) {
@@ -0,0 +1,367 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Board（ビットボード）の単体テスト
+ */
+public class BoardTest {
+
+    @Test
+    public void testInitialPosition() {
+        Board board = new Board();
+
+        assertEquals(E_STATUS.Black, board.getTurn());
+        assertEquals(E_STATUS.Black, board.getStatus(3, 3));
+        assertEquals(E_STATUS.White, board.getStatus(3, 4));
+        assertEquals(E_STATUS.White, board.getStatus(4, 3));
+        assertEquals(E_STATUS.Black, board.getStatus(4, 4));
+        assertEquals(2, board.countStatusCell(E_STATUS.Black));
+        assertEquals(2, board.countStatusCell(E_STATUS.White));
+        assertEquals(60, board.countStatusCell(E_STATUS.None));
+
+        // 初期局面で黒が打てるのは4箇所
+        ArrayList<HashMap> moves = board.getCanPutRCs(E_STATUS.Black);
+        assertEquals(4, moves.size());
+        assertTrue(board.isCanPut(E_STATUS.Black, 2, 4));
+        assertTrue(board.isCanPut(E_STATUS.Black, 3, 5));
+        assertTrue(board.isCanPut(E_STATUS.Black, 4, 2));
+        assertTrue(board.isCanPut(E_STATUS.Black, 5, 3));
+        assertFalse(board.isCanPut(E_STATUS.Black, 2, 3));
+    }
+
+    @Test
+    public void testTurnOver() {
+        Board board = new Board();
+
+        board.changeCell(2, 4);
+        long flips = board.turnOver(E_STATUS.Black, 2, 4, false);
+
+        assertEquals(1L << Board.toSquare(3, 4), flips);
+        assertEquals(E_STATUS.Black, board.getStatus(3, 4));
+        assertEquals(4, board.countStatusCell(E_STATUS.Black));
+        assertEquals(1, board.countStatusCell(E_STATUS.White));
+        // ビューも追従している
+        assertEquals(E_STATUS.Black, board.getCells()[3][4].getStatus());
+        assertEquals(E_STATUS.Black, board.getCells()[2][4].getStatus());
+    }
+
+    @Test
+    public void testCloneIsIndependent() {
+        Board board = new Board();
+        Board cloned = board.clone();
+
+        cloned.changeCell(2, 4);
+        cloned.turnOver(E_STATUS.Black, 2, 4, false);
+        cloned.changeTurn();
+
+        assertEquals(E_STATUS.None, board.getStatus(2, 4));
+        assertEquals(E_STATUS.White, board.getStatus(3, 4));
+        assertEquals(E_STATUS.White, board.getCells()[3][4].getStatus());
+        assertEquals(E_STATUS.Black, board.getTurn());
+        assertEquals(E_STATUS.Black, cloned.getCells()[3][4].getStatus());
+    }
+
+    @Test
+    public void testRandomGamesKeepViewInSync() {
+        Random random = new Random(1);
+        for (int game = 0; game < 50; game++) {
+            Board board = new Board();
+            while (board.isCanPutAll(E_STATUS.Black) || board.isCanPutAll(E_STATUS.White)) {
+                if (!board.isCanPutAll(board.getTurn())) {
+                    board.changeTurn();
+                    continue;
+                }
+                ArrayList<HashMap> moves = board.getCanPutRCs(board.getTurn());
+                HashMap<String, Integer> map = moves.get(random.nextInt(moves.size()));
+                int r = map.get("r");
+                int c = map.get("c");
+
+                int before = board.countStatusCell(board.getTurn());
+                board.changeCell(r, c);
+                ArrayList<Cell> flipped = board.turnOverCells(board.getTurn(), r, c, false);
+                assertTrue(flipped.size() > 0);
+                assertEquals(before + 1 + flipped.size(), board.countStatusCell(board.getTurn()));
+                board.changeTurn();
+
+                assertViewMatches(board);
+                assertMobilityMatches(board, E_STATUS.Black);
+                assertMobilityMatches(board, E_STATUS.White);
+            }
+            assertEquals(64, board.countStatusCell(E_STATUS.Black) + board.countStatusCell(E_STATUS.White)
+                    + board.countStatusCell(E_STATUS.None));
+        }
+    }
+
+    @Test
+    public void testGetMoves() {
+        Board board = new Board();
+        MoveList list = new MoveList();
+        board.getMoves(E_STATUS.Black, list);
+
+        assertEquals(4, list.size());
+        long mask = 0;
+        for (int i = 0; i < list.size(); i++) {
+            assertTrue(board.isCanPut(E_STATUS.Black, list.getR(i), list.getC(i)));
+            mask |= 1L << list.get(i);
+        }
+        assertEquals(board.getMobility(E_STATUS.Black), mask);
+
+        // スコア順の並べ替えは同点の順序を保つ
+        list.setScore(0, 1);
+        list.setScore(1, 5);
+        list.setScore(2, 1);
+        list.setScore(3, 5);
+        int first = list.get(0);
+        int second = list.get(1);
+        int third = list.get(2);
+        int fourth = list.get(3);
+        list.sortByScore();
+        assertEquals(second, list.get(0));
+        assertEquals(fourth, list.get(1));
+        assertEquals(first, list.get(2));
+        assertEquals(third, list.get(3));
+    }
+
+    @Test
+    public void testMakeAndUndoMove() {
+        Random random = new Random(2);
+        for (int game = 0; game < 50; game++) {
+            Board board = new Board().clone();
+            int[] played = new int[Board.ROWS * Board.COLS];
+            long[] flipped = new long[Board.ROWS * Board.COLS];
+            long[] blacks = new long[Board.ROWS * Board.COLS];
+            long[] whites = new long[Board.ROWS * Board.COLS];
+            int ply = 0;
+
+            long moves;
+            while ((moves = board.getMobility(board.getTurn())) != 0) {
+                int n = random.nextInt(Long.bitCount(moves));
+                for (int i = 0; i < n; i++) {
+                    moves &= moves - 1;
+                }
+                int sq = Long.numberOfTrailingZeros(moves);
+
+                // 従来の手順と同じ結果になる
+                Board expected = board.clone();
+                expected.changeCell(sq / Board.COLS, sq % Board.COLS);
+                long expectedFlips = expected.turnOver(expected.getTurn(), sq / Board.COLS, sq % Board.COLS, false);
+                expected.changeTurn();
+
+                blacks[ply] = board.getStones(E_STATUS.Black);
+                whites[ply] = board.getStones(E_STATUS.White);
+                played[ply] = sq;
+                flipped[ply] = board.makeMove(sq);
+                assertEquals(expectedFlips, flipped[ply]);
+                assertEquals(expected.getStones(E_STATUS.Black), board.getStones(E_STATUS.Black));
+                assertEquals(expected.getStones(E_STATUS.White), board.getStones(E_STATUS.White));
+                assertEquals(expected.getTurn(), board.getTurn());
+                ply++;
+            }
+
+            // 逆順に取り消すと初期局面に戻る
+            while (ply > 0) {
+                ply--;
+                board.undoMove(played[ply], flipped[ply]);
+                assertEquals(blacks[ply], board.getStones(E_STATUS.Black));
+                assertEquals(whites[ply], board.getStones(E_STATUS.White));
+            }
+            assertEquals(E_STATUS.Black, board.getTurn());
+        }
+    }
+
+    @Test
+    public void testIncrementalCountsAndPositionScore() {
+        Random random = new Random(3);
+        for (int game = 0; game < 50; game++) {
+            Board board = new Board();
+            int[] played = new int[Board.ROWS * Board.COLS];
+            long[] flipped = new long[Board.ROWS * Board.COLS];
+            int ply = 0;
+
+            long moves;
+            while ((moves = board.getMobility(board.getTurn())) != 0) {
+                int n = random.nextInt(Long.bitCount(moves));
+                for (int i = 0; i < n; i++) {
+                    moves &= moves - 1;
+                }
+                played[ply] = Long.numberOfTrailingZeros(moves);
+                flipped[ply] = board.makeMove(played[ply]);
+                ply++;
+                assertCountsMatch(board);
+            }
+            while (ply > 0) {
+                ply--;
+                board.undoMove(played[ply], flipped[ply]);
+                assertCountsMatch(board);
+            }
+        }
+
+        // setCell でも追従する
+        Board board = new Board();
+        board.setCell(0, 0, E_STATUS.White);
+        board.setCell(3, 3, E_STATUS.White);
+        assertCountsMatch(board);
+    }
+
+    private void assertCountsMatch(Board board) {
+        int black = board.getStatusCount(E_STATUS.Black);
+        int white = board.getStatusCount(E_STATUS.White);
+        int empty = board.getStatusCount(E_STATUS.None);
+        int blackScore = board.getPositionScore(E_STATUS.Black);
+        int whiteScore = board.getPositionScore(E_STATUS.White);
+
+        int expectedBlackScore = 0;
+        int expectedWhiteScore = 0;
+        for (int r = 0; r < Board.ROWS; r++) {
+            for (int c = 0; c < Board.COLS; c++) {
+                if (board.getStatus(r, c) == E_STATUS.Black) {
+                    expectedBlackScore += Board.scores[r][c];
+                } else if (board.getStatus(r, c) == E_STATUS.White) {
+                    expectedWhiteScore += Board.scores[r][c];
+                }
+            }
+        }
+        assertEquals(expectedBlackScore, blackScore);
+        assertEquals(expectedWhiteScore, whiteScore);
+
+        board.countCell();
+        assertEquals(board.getStatusCount(E_STATUS.Black), black);
+        assertEquals(board.getStatusCount(E_STATUS.White), white);
+        assertEquals(board.getStatusCount(E_STATUS.None), empty);
+    }
+
+    @Test
+    public void testZobristHash() {
+        Random random = new Random(4);
+        for (int game = 0; game < 50; game++) {
+            Board board = new Board();
+            long initial = board.getHash();
+            assertEquals(board.calcHash(), initial);
+
+            int[] played = new int[Board.ROWS * Board.COLS];
+            long[] flipped = new long[Board.ROWS * Board.COLS];
+            int ply = 0;
+
+            long moves;
+            while ((moves = board.getMobility(board.getTurn())) != 0) {
+                int n = random.nextInt(Long.bitCount(moves));
+                for (int i = 0; i < n; i++) {
+                    moves &= moves - 1;
+                }
+                played[ply] = Long.numberOfTrailingZeros(moves);
+                flipped[ply] = board.makeMove(played[ply]);
+                ply++;
+                assertEquals(board.calcHash(), board.getHash());
+            }
+            while (ply > 0) {
+                ply--;
+                board.undoMove(played[ply], flipped[ply]);
+            }
+            assertEquals(initial, board.getHash());
+        }
+
+        // 手番だけが違う局面は区別される
+        Board board = new Board();
+        long black = board.getHash();
+        board.changeTurn();
+        assertNotEquals(black, board.getHash());
+        assertEquals(board.calcHash(), board.getHash());
+        board.changeTurn();
+        assertEquals(black, board.getHash());
+
+        // 別の手順で同じ局面になれば同じ値
+        Board a = new Board();
+        a.setCell(0, 0, E_STATUS.Black);
+        a.setCell(7, 7, E_STATUS.White);
+        Board b = new Board();
+        b.setCell(7, 7, E_STATUS.White);
+        b.setCell(0, 0, E_STATUS.Black);
+        assertEquals(a.getHash(), b.getHash());
+        assertEquals(a.calcHash(), a.getHash());
+    }
+
+    @Test
+    public void testMobilityDoesNotWrapAroundEdges() {
+        Board board = new Board();
+        board.resetEmpty();
+        // 右端の白を挟む先は盤外なので、次の行の左端には打てない
+        board.setCell(0, 6, E_STATUS.Black);
+        board.setCell(0, 7, E_STATUS.White);
+        assertEquals(0, board.getMobility(E_STATUS.Black));
+
+        // 縦方向は端まで挟める
+        board.setCell(6, 0, E_STATUS.White);
+        board.setCell(5, 0, E_STATUS.Black);
+        assertEquals(1L << Board.toSquare(7, 0), board.getMobility(E_STATUS.Black));
+    }
+
+    @Test
+    public void testCalcFlipsMatchesRayWalk() {
+        // ランダムな局面の全マスで、1 マスずつたどる方式と結果が一致する
+        Random rand = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            long occupied = rand.nextLong() | rand.nextLong();
+            long own = occupied & rand.nextLong();
+            long opp = occupied & ~own;
+            for (int sq = 0; sq < Board.ROWS * Board.COLS; sq++) {
+                assertEquals(rayWalkFlips(own, opp, sq), Board.calcFlips(own, opp, sq));
+            }
+        }
+    }
+
+    private static final int[][] DIRECTIONS = {{0, -1}, {-1, -1}, {-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}};
+
+    // 以前の実装（8 方向を 1 マスずつたどる）
+    private static long rayWalkFlips(long own, long opp, int sq) {
+        long flips = 0;
+        for (int[] d : DIRECTIONS) {
+            int r = sq / Board.COLS + d[1];
+            int c = sq % Board.COLS + d[0];
+            long line = 0;
+            while (r >= 0 && r < Board.ROWS && c >= 0 && c < Board.COLS) {
+                long bit = 1L << Board.toSquare(r, c);
+                if ((opp & bit) != 0) {
+                    line |= bit;
+                } else {
+                    if ((own & bit) != 0) {
+                        flips |= line;
+                    }
+                    break;
+                }
+                r += d[1];
+                c += d[0];
+            }
+        }
+        return flips;
+    }
+
+    private void assertMobilityMatches(Board board, E_STATUS status) {
+        long expected = 0;
+        for (int r = 0; r < Board.ROWS; r++) {
+            for (int c = 0; c < Board.COLS; c++) {
+                if (board.isCanPut(status, r, c)) {
+                    expected |= 1L << Board.toSquare(r, c);
+                }
+            }
+        }
+        assertEquals(expected, board.getMobility(status));
+    }
+
+    private void assertViewMatches(Board board) {
+        Cell[][] cells = board.getCells();
+        for (int r = 0; r < Board.ROWS; r++) {
+            for (int c = 0; c < Board.COLS; c++) {
+                assertEquals(board.getStatus(r, c), cells[r][c].getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * EndgameSolver（終盤の完全読み）の単体テスト
+ */
+public class EndgameSolverTest {
+
+    private static final long TIME_LIMIT_MS = 60000;
+
+    @Test
+    public void testMatchesPlainAlphaBeta() {
+        // 単純な alpha-beta（全幅の窓）と同じ石差になる
+        SearchEngine engine = new SearchEngine(4);
+        for (Board board : SearchEngineTest.createPositions(21, 20, 10)) {
+            E_STATUS turn = board.getTurn();
+            long own = board.getStones(turn);
+            long opp = board.getStones(Cell.getOppositeStatus(turn));
+            int expected = alphaBeta(own, opp, -100, 100);
+
+            engine.startSearch(TIME_LIMIT_MS);
+            assertEquals(expected * 100, engine.solve(board.clone(), -SearchEngine.INF, SearchEngine.INF));
+            // 窓の外なら上限・下限になっている
+            int low = engine.solve(board.clone(), expected * 100, expected * 100 + 100);
+            int high = engine.solve(board.clone(), expected * 100 - 100, expected * 100);
+            assertTrue(low <= expected * 100);
+            assertTrue(high >= expected * 100);
+        }
+    }
+
+    @Test
+    public void testStableDiscsNeverFlip() {
+        // 確定石とした石は、その後どう打っても裏返らない
+        Random rand = new Random(22);
+        MoveList moves = new MoveList();
+        for (Board board : SearchEngineTest.createPositions(23, 50, 14)) {
+            long stableBlack = EndgameSolver.stableDiscs(board.getStones(E_STATUS.Black), board.getStones(E_STATUS.White));
+            long stableWhite = EndgameSolver.stableDiscs(board.getStones(E_STATUS.White), board.getStones(E_STATUS.Black));
+            for (int playout = 0; playout < 20; playout++) {
+                Board work = board.clone();
+                while (true) {
+                    work.getMoves(work.getTurn(), moves);
+                    if (moves.size() == 0) {
+                        if (!work.isCanPutAll(work.getOppositeTurn())) {
+                            break;
+                        }
+                        work.changeTurn();
+                        continue;
+                    }
+                    work.makeMove(moves.get(rand.nextInt(moves.size())));
+                    assertEquals(stableBlack, work.getStones(E_STATUS.Black) & stableBlack);
+                    assertEquals(stableWhite, work.getStones(E_STATUS.White) & stableWhite);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFastestFirstReducesNodes() {
+        // 速さ優先で並べても石差は変わらず、既定の下限では速さ優先なしよりノード数が減る
+        final int noFastestFirst = Board.ROWS * Board.COLS + 1;
+        ArrayList<Board> positions = SearchEngineTest.createPositions(25, 10, 16);
+        int[] expected = new int[positions.size()];
+        long baseline = 0;
+        for (int threshold : new int[]{noFastestFirst, 5, 6, 7, 8, 10, 12}) {
+            long nodes = 0;
+            for (int i = 0; i < positions.size(); i++) {
+                SearchEngine engine = new SearchEngine(16);
+                engine.setFastestFirstEmpties(threshold);
+                engine.startSearch(TIME_LIMIT_MS);
+                int score = engine.solve(positions.get(i).clone(), -SearchEngine.INF, SearchEngine.INF);
+                if (threshold == noFastestFirst) {
+                    expected[i] = score;
+                }
+                assertEquals(expected[i], score);
+                nodes += engine.getNodeCount();
+            }
+            if (threshold == noFastestFirst) {
+                baseline = nodes;
+            } else if (threshold == EndgameSolver.DEFAULT_FASTEST_FIRST_EMPTIES) {
+                assertTrue(nodes < baseline);
+            }
+        }
+    }
+
+    @Test
+    public void testRootSolveCompletes() {
+        // ルートの読み切り（反復深化）が時間内に終わり、指定した読み切り方まで完了する
+        // 勝敗だけの読み切りは、石差までの読み切りよりノード数が少ない
+        for (int empties : new int[]{14, 16}) {
+            ArrayList<Board> positions = SearchEngineTest.createPositions(24, 3, empties);
+            long[] nodes = new long[2];
+            SearchEngine.EndgameMode[] modes = {SearchEngine.EndgameMode.WLD, SearchEngine.EndgameMode.EXACT};
+            for (int m = 0; m < modes.length; m++) {
+                SearchEngine.EndgameMode mode = modes[m];
+                for (Board board : positions) {
+                    SearchEngine engine = new SearchEngine(16);
+                    MoveList moves = new MoveList();
+                    board.getMoves(board.getTurn(), moves);
+                    engine.startSearch(TIME_LIMIT_MS);
+                    engine.iterativeDeepening(board.clone(), moves, 0, mode);
+                    assertFalse(engine.isTimeout());
+                    assertEquals(mode, engine.getCompletedMode());
+                    nodes[m] += engine.getNodeCount();
+                }
+            }
+            assertTrue(nodes[0] < nodes[1]);
+        }
+    }
+
+    /**
+     * 比較用：パリティや置換表を使わない alpha-beta
+     */
+    private static int alphaBeta(long own, long opp, int alpha, int beta) {
+        long moves = Board.calcMobility(own, opp);
+        if (moves == 0) {
+            if (Board.calcMobility(opp, own) == 0) {
+                return Long.bitCount(own) - Long.bitCount(opp);
+            }
+            return -alphaBeta(opp, own, -beta, -alpha);
+        }
+        int best = -100;
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Board.calcFlips(own, opp, sq);
+            int score = -alphaBeta(opp & ~flips, own | flips | (1L << sq), -beta, -Math.max(alpha, best));
+            if (score > best) {
+                best = score;
+                if (best >= beta) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,130 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * OpeningBook（定石）の単体テスト
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testLookupInAllSymmetries() throws IOException {
+        // 書いた局面は、8 通りのどの向きから引いても同じ手（その向きに直したもの）が評価値の高い順に出る
+        ArrayList<Board> positions = SearchEngineTest.createPositions(31, 30, 52);
+        ArrayList<OpeningBook.Entry> entries = new ArrayList<>();
+        Random rand = new Random(31);
+        int[][] scores = new int[positions.size()][Board.ROWS * Board.COLS];
+        for (int i = 0; i < positions.size(); i++) {
+            Board board = positions.get(i);
+            MoveList moves = new MoveList();
+            board.getMoves(board.getTurn(), moves);
+            for (int j = 0; j < moves.size(); j++) {
+                scores[i][moves.get(j)] = rand.nextInt(2001) - 1000;
+                entries.add(entry(board, moves.get(j), scores[i][moves.get(j)]));
+            }
+        }
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(toBytes(entries)));
+
+        MoveList out = new MoveList();
+        for (int i = 0; i < positions.size(); i++) {
+            Position position = positions.get(i).getPosition();
+            for (int sym = 0; sym < Symmetry.COUNT; sym++) {
+                Board board = new Board();
+                board.setPosition(position.transform(sym));
+                assertTrue(book.lookup(board, out));
+                assertEquals(Long.bitCount(board.getMobility(board.getTurn())), out.size());
+                for (int j = 0; j < out.size(); j++) {
+                    int original = Symmetry.transformSquare(out.get(j), Symmetry.inverse(sym));
+                    assertEquals(scores[i][original], out.getScore(j));
+                    if (j > 0) {
+                        assertTrue(out.getScore(j - 1) >= out.getScore(j));
+                    }
+                }
+            }
+        }
+
+        // 定石にない局面
+        Board board = new Board();
+        assertFalse(book.lookup(board, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testLaterEntryWins() throws IOException {
+        Board board = new Board();
+        ArrayList<OpeningBook.Entry> entries = new ArrayList<>();
+        entries.add(entry(board, 20, 100));
+        entries.add(entry(board, 29, 50));
+        entries.add(entry(board, 20, -100));
+        OpeningBook book = new OpeningBook(ByteBuffer.wrap(toBytes(entries)));
+        assertEquals(2, book.size());
+
+        MoveList out = new MoveList();
+        assertTrue(book.lookup(board, out));
+        assertEquals(2, out.size());
+        assertEquals(29, out.get(0));
+        assertEquals(50, out.getScore(0));
+        assertEquals(20, out.get(1));
+        assertEquals(-100, out.getScore(1));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        // ファイルの途中に置いた定石をメモリマップで引ける（assets の中の位置を指定するのと同じ）
+        Board board = new Board();
+        ArrayList<OpeningBook.Entry> entries = new ArrayList<>();
+        entries.add(entry(board, 43, 0));
+        byte[] bytes = toBytes(entries);
+
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[5]);
+            out.write(bytes);
+        }
+        OpeningBook book;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            book = OpeningBook.map(raf.getChannel(), 5, bytes.length);
+        }
+        MoveList out = new MoveList();
+        assertTrue(book.lookup(board, out));
+        assertEquals(43, out.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsWrongMagic() {
+        new OpeningBook(ByteBuffer.wrap(new byte[OpeningBook.HEADER_SIZE]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTruncatedFile() throws IOException {
+        ArrayList<OpeningBook.Entry> entries = new ArrayList<>();
+        entries.add(entry(new Board(), 20, 0));
+        byte[] bytes = toBytes(entries);
+        new OpeningBook(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    }
+
+    private static OpeningBook.Entry entry(Board board, int move, int score) {
+        E_STATUS turn = board.getTurn();
+        return new OpeningBook.Entry(board.getStones(turn), board.getStones(Cell.getOppositeStatus(turn)), move, score);
+    }
+
+    private static byte[] toBytes(ArrayList<OpeningBook.Entry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OpeningBook.write(entries, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,128 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Position（局面）の単体テスト
+ */
+public class PositionTest {
+
+    @Test
+    public void testStringRoundTrip() {
+        Board board = new Board();
+        Position position = board.getPosition();
+
+        // 従来の保存形式と同じ文字列になる
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < Board.ROWS; r++) {
+            for (int c = 0; c < Board.COLS; c++) {
+                sb.append(board.getStatus(r, c).ordinal());
+            }
+        }
+        assertEquals(sb.toString(), position.format());
+        assertEquals(position, Position.parse(position.format(), E_STATUS.Black));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() {
+        Random rand = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            long black = rand.nextLong();
+            long white = rand.nextLong() & ~black;
+            Position position = new Position(black, white, (i % 2 == 0) ? E_STATUS.Black : E_STATUS.White);
+
+            byte[] bytes = position.toBytes();
+            assertEquals(Position.BINARY_LENGTH, bytes.length);
+            assertEquals(position, Position.readFrom(bytes, 0));
+            assertEquals(position, Position.parse(position.format(), position.getTurn()));
+        }
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        Position a = new Board().getPosition();
+        Position b = new Board().getPosition();
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, a.withTurn(E_STATUS.White));
+    }
+
+    @Test
+    public void testSetPosition() {
+        Board board = new Board();
+        board.makeMove(Board.toSquare(2, 4));
+        Position position = board.getPosition();
+
+        Board restored = new Board();
+        restored.setPosition(position);
+        assertEquals(position, restored.getPosition());
+        assertEquals(board.getHash(), restored.getHash());
+        assertEquals(4, restored.countStatusCell(E_STATUS.Black));
+        assertEquals(E_STATUS.Black, restored.getCells()[2][4].getStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsInvalidChar() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Position.STRING_LENGTH; i++) {
+            sb.append(i == 10 ? '3' : '0');
+        }
+        Position.parse(sb, E_STATUS.Black);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsWrongLength() {
+        Position.parse("000", E_STATUS.Black);
+    }
+
+    @Test
+    public void testSymmetryMatchesSquareTransform() {
+        Random rand = new Random(11);
+        for (int sym = 0; sym < Symmetry.COUNT; sym++) {
+            for (int sq = 0; sq < Position.STRING_LENGTH; sq++) {
+                int to = Symmetry.transformSquare(sq, sym);
+                assertEquals(1L << to, Symmetry.transform(1L << sq, sym));
+                assertEquals(sq, Symmetry.transformSquare(to, Symmetry.inverse(sym)));
+            }
+            long x = rand.nextLong();
+            assertEquals(x, Symmetry.transform(Symmetry.transform(x, sym), Symmetry.inverse(sym)));
+        }
+    }
+
+    @Test
+    public void testCanonical() {
+        // 初期局面の 4 手はすべて同じ正規形になる
+        Board board = new Board();
+        Position expected = null;
+        MoveList moves = new MoveList();
+        board.getMoves(E_STATUS.Black, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int sq = moves.get(i);
+            long flips = board.makeMove(sq);
+            Position canonical = board.getPosition().canonical();
+            if (expected == null) {
+                expected = canonical;
+            }
+            assertEquals(expected, canonical);
+            board.undoMove(sq, flips);
+        }
+
+        Random rand = new Random(13);
+        for (int i = 0; i < 100; i++) {
+            long black = rand.nextLong();
+            long white = rand.nextLong() & ~black;
+            Position position = new Position(black, white, E_STATUS.White);
+            Position canonical = position.canonical();
+            for (int sym = 0; sym < Symmetry.COUNT; sym++) {
+                assertEquals(canonical, position.transform(sym).canonical());
+            }
+            assertEquals(position, canonical.transform(Symmetry.inverse(position.canonicalSymmetry())));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.st_wet.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProbCut（Multi-ProbCut の係数）の単体テスト
+ */
+public class ProbCutTest {
+
+    private static final long TIME_LIMIT_MS = 600000;
+
+    @Test
+    public void testShallowDepths() {
+        for (int depth = ProbCut.MIN_DEPTH; depth <= ProbCut.MAX_DEPTH; depth++) {
+            for (int check = 0; check < ProbCut.CHECKS; check++) {
+                int shallow = ProbCut.shallowDepth(depth, check);
+                assertTrue(shallow >= 0 && shallow < depth);
+                for (int stage = 0; stage < ProbCut.stageCount(); stage++) {
+                    if (shallow > 0) {
+                        assertTrue(ProbCut.slope1000(stage, depth, check) > 0);
+                        assertTrue(ProbCut.sigma(stage, depth, check) > 0);
+                    }
+                }
+            }
+            // 安い方から試す
+            assertTrue(ProbCut.shallowDepth(depth, 1) == 0 || ProbCut.shallowDepth(depth, 0) < ProbCut.shallowDepth(depth, 1));
+        }
+        assertEquals(0, ProbCut.stage(60));
+        assertEquals(ProbCut.stageCount() - 1, ProbCut.stage(20));
+    }
+
+    @Test
+    public void testProbCutKeepsBestMove() {
+        // 枝刈りありでも、深さ 7 の最善手はほとんど変わらず、ノード数は大きく減る
+        int same = 0;
+        long[] nodes = new long[2];
+        ArrayList<Board> positions = SearchEngineTest.createPositions(31, 20, 36);
+        for (Board board : positions) {
+            long[] masks = new long[2];
+            for (int i = 0; i < 2; i++) {
+                SearchEngine engine = new SearchEngine(16);
+                engine.setUseProbCut(i == 1);
+                MoveList moves = new MoveList();
+                board.getMoves(board.getTurn(), moves);
+                engine.startSearch(TIME_LIMIT_MS);
+                engine.iterativeDeepening(board.clone(), moves, 7, SearchEngine.EndgameMode.NONE);
+                nodes[i] += engine.getNodeCount();
+                for (int j = 0; j < engine.getBestMoves().size(); j++) {
+                    masks[i] |= 1L << engine.getBestMoves().get(j);
+                }
+            }
+            if ((masks[0] & masks[1]) != 0) {
+                same++;
+            }
+        }
+        assertTrue(nodes[1] < nodes[0]);
+        assertTrue(same * 10 >= positions.size() * 7);
+    }
+}
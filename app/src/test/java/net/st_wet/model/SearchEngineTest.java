@@ -0,0 +1,418 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * SearchEngine（CPU の探索）の単体テスト
+ *
+ * 値が一致することを確かめるテストでは、Multi-ProbCut（見込みで枝を打ち切る）を切って比べる
+ */
+public class SearchEngineTest {
+
+    private static final long TIME_LIMIT_MS = 60000;
+
+    @Test
+    public void testPvsMatchesFullWindowSearch() {
+        // 中盤：深さ 5 の探索で評価値が変わらず、ノード数は減る
+        long[] nodes = compareNodes(createPositions(1, 10, 30), 5, false, false);
+        assertTrue(nodes[1] < nodes[0]);
+    }
+
+    @Test
+    public void testPvsMatchesFullWindowSolve() {
+        // 終盤：完全読みの石差が変わらず、ノード数は減る
+        long[] nodes = compareNodes(createPositions(2, 10, 12), 0, true, false);
+        assertTrue(nodes[1] < nodes[0]);
+    }
+
+    @Test
+    public void testDynamicOrderingReducesNodes() {
+        // 履歴・キラーで並べても評価値は変わらず、ノード数は減る
+        long[] nodes = compareNodes(createPositions(13, 10, 36), 7, false, true);
+        assertTrue(nodes[1] < nodes[0]);
+        nodes = compareNodes(createPositions(14, 10, 16), 0, true, true);
+        assertTrue(nodes[1] < nodes[0]);
+    }
+
+    @Test
+    public void testIterativeDeepeningFindsAllBestMoves() {
+        // 反復深化（窓つき・PVS）の最善手と評価値が、各手を全幅で調べた結果と一致する
+        for (Board board : createPositions(4, 5, 30)) {
+            assertRootMatches(board, 5, false);
+        }
+        for (Board board : createPositions(5, 5, 10)) {
+            assertRootMatches(board, 0, true);
+        }
+    }
+
+    @Test
+    public void testWldFindsWinningMoves() {
+        // 勝敗の読み切りは完全読みと勝ち・負け・引き分けが一致し、選んだ手はどれも同じ結果になる
+        for (Board board : createPositions(12, 10, 12)) {
+            MoveList moves = new MoveList();
+            board.getMoves(board.getTurn(), moves);
+            SearchEngine exact = new SearchEngine(1);
+            exact.startSearch(TIME_LIMIT_MS);
+            int expected = Integer.signum(exact.iterativeDeepening(board.clone(), moves, 0, SearchEngine.EndgameMode.EXACT));
+
+            SearchEngine wld = new SearchEngine(1);
+            wld.startSearch(TIME_LIMIT_MS);
+            board.getMoves(board.getTurn(), moves);
+            assertEquals(expected, Integer.signum(wld.iterativeDeepening(board.clone(), moves, 0, SearchEngine.EndgameMode.WLD)));
+            assertEquals(SearchEngine.EndgameMode.WLD, wld.getCompletedMode());
+
+            Board work = board.clone();
+            MoveList best = wld.getBestMoves();
+            for (int i = 0; i < best.size(); i++) {
+                long flips = work.makeMove(best.get(i));
+                assertEquals(expected, Integer.signum(-exact.solve(work, -SearchEngine.INF, SearchEngine.INF)));
+                work.undoMove(best.get(i), flips);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelRootMatchesSequential() {
+        // ルート並列探索でも評価値と同点の最善手は変わらない
+        SearchEngine parallel = new SearchEngine(1);
+        parallel.setThreads(4);
+        parallel.setUseProbCut(false);
+        for (Board board : createPositions(6, 5, 30)) {
+            assertSameRootResult(board, 5, false, parallel);
+        }
+        for (Board board : createPositions(7, 5, 11)) {
+            assertSameRootResult(board, 0, true, parallel);
+        }
+    }
+
+    @Test
+    public void testLazySmpFindsLegalBestMove() {
+        SearchEngine engine = new SearchEngine(4);
+        engine.setThreads(4);
+        engine.setParallelMode(SearchEngine.ParallelMode.LAZY_SMP);
+        for (Board board : createPositions(9, 3, 30)) {
+            MoveList moves = new MoveList();
+            board.getMoves(board.getTurn(), moves);
+            engine.startSearch(TIME_LIMIT_MS);
+            engine.iterativeDeepening(board.clone(), moves, 5, SearchEngine.EndgameMode.NONE);
+            assertEquals(5, engine.getCompletedDepth());
+            assertTrue(engine.getBestMoves().size() > 0);
+            long legal = board.getMobility(board.getTurn());
+            assertEquals(toMask(engine.getBestMoves()), toMask(engine.getBestMoves()) & legal);
+        }
+        // 終盤の完全読みは深さによらず値が決まるので、逐次探索と一致する
+        for (Board board : createPositions(10, 3, 11)) {
+            assertSameRootResult(board, 0, true, engine);
+        }
+    }
+
+    @Test
+    public void testPonderReusesWork() {
+        // 相手の手番に先読みしておくと、相手が打ったあとの同じ深さの思考のノード数が減る
+        long[] nodes = new long[2];
+        Random rand = new Random(16);
+        for (Board board : createPositions(16, 5, 40)) {
+            MoveList replies = new MoveList();
+            board.getMoves(board.getTurn(), replies);
+            int sq = replies.get(rand.nextInt(replies.size()));
+            for (int i = 0; i < 2; i++) {
+                SearchEngine engine = new SearchEngine(16);
+                if (i == 1) {
+                    engine.startSearch(TIME_LIMIT_MS);
+                    assertTrue(engine.ponder(board.clone(), replies, 6, SearchEngine.EndgameMode.NONE));
+                }
+                Board work = board.clone();
+                work.makeMove(sq);
+                MoveList moves = new MoveList();
+                work.getMoves(work.getTurn(), moves);
+                engine.startSearch(TIME_LIMIT_MS);
+                engine.iterativeDeepening(work, moves, 7, SearchEngine.EndgameMode.NONE);
+                assertEquals(7, engine.getCompletedDepth());
+                nodes[i] += engine.getNodeCount();
+            }
+        }
+        assertTrue(nodes[1] < nodes[0]);
+    }
+
+    @Test
+    public void testStopEndsPonder() throws InterruptedException {
+        // 別のスレッドから stop で止めると、すぐに false で戻る
+        final SearchEngine engine = new SearchEngine(16);
+        final Board board = createPositions(17, 1, 40).get(0);
+        final MoveList moves = new MoveList();
+        board.getMoves(board.getTurn(), moves);
+        final boolean[] result = {true};
+        engine.startSearch(TIME_LIMIT_MS);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = engine.ponder(board.clone(), moves, 60, SearchEngine.EndgameMode.NONE);
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        long start = System.currentTimeMillis();
+        engine.stop();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertFalse(result[0]);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testStopEndsSearchQuickly() throws InterruptedException {
+        // 読み切りの途中でも、別のスレッドから stop するとワーカーごと数ミリ秒で戻る
+        final SearchEngine engine = new SearchEngine(16);
+        engine.setThreads(2);
+        engine.setParallelMode(SearchEngine.ParallelMode.LAZY_SMP);
+        final Board board = createPositions(18, 1, 24).get(0);
+        final MoveList moves = new MoveList();
+        board.getMoves(board.getTurn(), moves);
+        engine.startSearch(TIME_LIMIT_MS);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                engine.iterativeDeepening(board.clone(), moves, 60, SearchEngine.EndgameMode.EXACT);
+            }
+        });
+        thread.start();
+        Thread.sleep(300);
+        long start = System.nanoTime();
+        engine.stop();
+        thread.join(1000);
+        long latencyMs = (System.nanoTime() - start) / 1000000;
+        assertFalse(thread.isAlive());
+        assertTrue(engine.isTimeout());
+        assertTrue(latencyMs < 100);
+    }
+
+    @Test
+    public void testEvaluateIsSymmetric() {
+        SearchEngine engine = new SearchEngine(1);
+        for (Board board : createPositions(3, 10, 40)) {
+            assertEquals(-engine.evaluate(board, E_STATUS.Black), engine.evaluate(board, E_STATUS.White));
+        }
+    }
+
+    @Test
+    public void testDiscsEvalPrefersMostFlips() {
+        // Lv.1 の評価関数（石差だけ）で 1 手読むと、いちばん多く返せる手がすべて最善手になる
+        SearchEngine engine = new SearchEngine(1);
+        engine.setEvalSet(SearchEngine.EvalSet.DISCS);
+        MoveList moves = new MoveList();
+        for (Board board : createPositions(21, 10, 40)) {
+            board.getMoves(board.getTurn(), moves);
+            int most = 0;
+            long mostSet = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int count = Long.bitCount(board.turnOver(board.getTurn(), moves.getR(i), moves.getC(i), true));
+                if (count > most) {
+                    most = count;
+                    mostSet = 0;
+                }
+                if (count == most) {
+                    mostSet |= 1L << moves.get(i);
+                }
+            }
+            engine.startSearch(TIME_LIMIT_MS);
+            engine.iterativeDeepening(board.clone(), moves, 1, SearchEngine.EndgameMode.NONE);
+            assertEquals(mostSet, toMask(engine.getBestMoves()));
+        }
+    }
+
+    @Test
+    public void testSimpleEvalMatchesOldLv2() {
+        // Lv.2 の評価関数（Board.calcScore）では、旧 Lv.2 の探索（ルートの各手を全幅で 2 手読む）と最善手・評価値が一致する
+        // 終局が入るよう、空きマスの少ない局面も混ぜる
+        SearchEngine engine = new SearchEngine(1);
+        engine.setEvalSet(SearchEngine.EvalSet.SIMPLE);
+        MoveList moves = new MoveList();
+        for (int empties : new int[]{36, 4}) {
+            for (Board board : createPositions(22, 10, empties)) {
+                Board work = board.clone();
+                board.getMoves(board.getTurn(), moves);
+                int best = -SearchEngine.INF;
+                long bestSet = 0;
+                for (int i = 0; i < moves.size(); i++) {
+                    int sq = moves.get(i);
+                    long flips = work.makeMove(sq);
+                    int score = -oldLv2AlphaBeta(work, 2, -SearchEngine.INF, SearchEngine.INF, board.getTurn());
+                    work.undoMove(sq, flips);
+                    if (score > best) {
+                        best = score;
+                        bestSet = 0;
+                    }
+                    if (score == best) {
+                        bestSet |= 1L << sq;
+                    }
+                }
+                engine.startSearch(TIME_LIMIT_MS);
+                assertEquals(best, engine.iterativeDeepening(board.clone(), moves, 3, SearchEngine.EndgameMode.NONE));
+                assertEquals(bestSet, toMask(engine.getBestMoves()));
+            }
+        }
+    }
+
+    /**
+     * 旧 Lv.2 の探索（OthelloView の alphaBetaForLv2）をいまの Board で書き直したもの
+     * 末端も終局も、手番によらず myTurn から見た値を返す
+     */
+    private static int oldLv2AlphaBeta(Board board, int depth, int alpha, int beta, E_STATUS myTurn) {
+        MoveList moves = new MoveList();
+        board.getMoves(board.getTurn(), moves);
+        if (moves.size() == 0 && !board.isCanPutAll(board.getOppositeTurn())) {
+            int myCount = board.getStatusCount(myTurn);
+            int oppCount = board.getStatusCount(Cell.getOppositeStatus(myTurn));
+            return (myCount - oppCount) * 1000;
+        }
+        if (depth == 0) {
+            return board.calcScore(myTurn);
+        }
+        if (moves.size() == 0) {
+            board.changeTurn();
+            int score = -oldLv2AlphaBeta(board, depth, -beta, -alpha, myTurn);
+            board.changeTurn();
+            return score;
+        }
+        int bestScore = -SearchEngine.INF;
+        for (int i = 0; i < moves.size(); i++) {
+            int sq = moves.get(i);
+            long flips = board.makeMove(sq);
+            int score = -oldLv2AlphaBeta(board, depth - 1, -beta, -alpha, myTurn);
+            board.undoMove(sq, flips);
+            bestScore = Math.max(bestScore, score);
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return bestScore;
+    }
+
+    private void assertRootMatches(Board board, int depth, boolean solve) {
+        MoveList moves = new MoveList();
+        board.getMoves(board.getTurn(), moves);
+
+        SearchEngine reference = new SearchEngine(1);
+        reference.setUseProbCut(false);
+        reference.startSearch(TIME_LIMIT_MS);
+        Board work = board.clone();
+        int best = -SearchEngine.INF;
+        long bestSet = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int sq = moves.get(i);
+            long flips = work.makeMove(sq);
+            int score = solve
+                    ? -reference.solve(work, -SearchEngine.INF, SearchEngine.INF)
+                    : -reference.search(work, depth - 1, -SearchEngine.INF, SearchEngine.INF);
+            work.undoMove(sq, flips);
+            if (score > best) {
+                best = score;
+                bestSet = 0;
+            }
+            if (score == best) {
+                bestSet |= 1L << sq;
+            }
+        }
+
+        SearchEngine engine = new SearchEngine(1);
+        engine.setUseProbCut(false);
+        engine.startSearch(TIME_LIMIT_MS);
+        assertEquals(best, engine.iterativeDeepening(board.clone(), moves, depth, toMode(solve)));
+        assertEquals(bestSet, toMask(engine.getBestMoves()));
+    }
+
+    private void assertSameRootResult(Board board, int depth, boolean solve, SearchEngine parallel) {
+        MoveList moves = new MoveList();
+        board.getMoves(board.getTurn(), moves);
+
+        SearchEngine sequential = new SearchEngine(1);
+        sequential.setUseProbCut(false);
+        sequential.startSearch(TIME_LIMIT_MS);
+        int expected = sequential.iterativeDeepening(board.clone(), moves, depth, toMode(solve));
+
+        parallel.clearHashTable();
+        parallel.startSearch(TIME_LIMIT_MS);
+        board.getMoves(board.getTurn(), moves);
+        assertEquals(expected, parallel.iterativeDeepening(board.clone(), moves, depth, toMode(solve)));
+        assertFalse(parallel.isTimeout());
+        assertEquals(toMask(sequential.getBestMoves()), toMask(parallel.getBestMoves()));
+    }
+
+    private static SearchEngine.EndgameMode toMode(boolean solve) {
+        return solve ? SearchEngine.EndgameMode.EXACT : SearchEngine.EndgameMode.NONE;
+    }
+
+    private static long toMask(MoveList moves) {
+        long mask = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            mask |= 1L << moves.get(i);
+        }
+        return mask;
+    }
+
+    /**
+     * 同じ局面を全幅の窓と PVS（ordering なら静的な並びと履歴・キラー）で探索し、評価値が一致することを確かめる
+     * @return [全幅（静的な並び）のノード数, PVS（履歴・キラー）のノード数]
+     */
+    private long[] compareNodes(ArrayList<Board> positions, int depth, boolean solve, boolean ordering) {
+        long[] nodes = new long[2];
+        for (Board board : positions) {
+            int[] scores = new int[2];
+            for (int i = 0; i < 2; i++) {
+                SearchEngine engine = new SearchEngine(1);
+                engine.setUseProbCut(false);
+                if (ordering) {
+                    engine.setUseDynamicOrdering(i == 1);
+                } else {
+                    engine.setUsePvs(i == 1);
+                }
+                engine.startSearch(TIME_LIMIT_MS);
+                Board work = board.clone();
+                if (solve) {
+                    scores[i] = engine.solve(work, -SearchEngine.INF, SearchEngine.INF);
+                } else {
+                    scores[i] = engine.search(work, depth, -SearchEngine.INF, SearchEngine.INF);
+                }
+                assertFalse(engine.isTimeout());
+                nodes[i] += engine.getNodeCount();
+            }
+            assertEquals(scores[0], scores[1]);
+        }
+        return nodes;
+    }
+
+    /**
+     * 固定シードのランダムな対局から、空きマスが empties 個の局面を count 個作る
+     */
+    static ArrayList<Board> createPositions(long seed, int count, int empties) {
+        Random rand = new Random(seed);
+        ArrayList<Board> positions = new ArrayList<>();
+        MoveList moves = new MoveList();
+        while (positions.size() < count) {
+            Board board = new Board();
+            while (board.getStatusCount(E_STATUS.None) > empties) {
+                board.getMoves(board.getTurn(), moves);
+                if (moves.size() == 0) {
+                    if (!board.isCanPutAll(board.getOppositeTurn())) {
+                        break;
+                    }
+                    board.changeTurn();
+                    continue;
+                }
+                board.makeMove(moves.get(rand.nextInt(moves.size())));
+            }
+            if (board.getStatusCount(E_STATUS.None) == empties && board.isCanPutAll(board.getTurn())) {
+                positions.add(board.clone());
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,69 @@
+package net.st_wet.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * TimeManager（思考時間の配分）の単体テスト
+ */
+public class TimeManagerTest {
+
+    private static final long MAX_TIME_MS = 8000;
+
+    @Test
+    public void testAllocationByPhaseAndMoves() {
+        TimeManager tm = new TimeManager(MAX_TIME_MS);
+        long previous = 0;
+        // 序盤より中盤、中盤より読み切りの手前を長く
+        for (int empties : new int[]{56, 44, 34, 24}) {
+            tm.start(empties, 8);
+            assertTrue(tm.getSoftLimitMs() > previous);
+            assertTrue(tm.getSoftLimitMs() <= tm.getHardLimitMs());
+            assertTrue(tm.getHardLimitMs() <= MAX_TIME_MS);
+            previous = tm.getSoftLimitMs();
+        }
+        // 手が少なければ短く
+        tm.start(40, 2);
+        long few = tm.getSoftLimitMs();
+        tm.start(40, 12);
+        assertTrue(few < tm.getSoftLimitMs());
+    }
+
+    @Test
+    public void testStableBestMoveStopsEarly() {
+        TimeManager tm = new TimeManager(MAX_TIME_MS);
+        tm.start(40, 8);
+        long soft = tm.getSoftLimitMs();
+        long elapsed = soft / 2;
+        // 最善手が揺れていればソフトの締め切りを過ぎても続け、安定していれば手前でやめる
+        assertTrue(tm.canStartIteration(elapsed, 1, 0, false));
+        assertFalse(tm.canStartIteration(elapsed, 1, 5, false));
+        assertFalse(tm.canStartIteration(soft, 1, 0, false));
+        assertTrue(tm.canStartIteration(soft, 1, 0, true));
+        // ハードの締め切りまでに終わりそうにない反復は始めない
+        assertFalse(tm.canStartIteration(elapsed, tm.getHardLimitMs(), 0, true));
+    }
+
+    @Test
+    public void testSearchReturnsBeforeHardDeadline() {
+        // 時間配分つきの Lv.3 探索は、1 つ以上の深さを完了してハードの締め切りまでに戻る
+        TimeManager tm = new TimeManager(2000);
+        for (int empties : new int[]{50, 40, 30}) {
+            ArrayList<Board> positions = SearchEngineTest.createPositions(15, 3, empties);
+            for (Board board : positions) {
+                SearchEngine engine = new SearchEngine(16);
+                MoveList moves = new MoveList();
+                board.getMoves(board.getTurn(), moves);
+                tm.start(empties, moves.size());
+                engine.startSearch(tm);
+                engine.iterativeDeepening(board.clone(), moves, 60, SearchEngine.EndgameMode.NONE);
+                long elapsed = tm.getElapsedMs();
+                assertTrue(engine.getCompletedDepth() > 0);
+                assertTrue(elapsed <= tm.getHardLimitMs() + 100);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.st_wet.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TranspositionTable（置換表）の単体テスト
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable tt = new TranspositionTable(1);
+        assertEquals(1024 * 1024 / 16, tt.capacity());
+
+        long hash = 0x123456789ABCDEFL;
+        assertEquals(0, tt.probe(hash));
+
+        tt.store(hash, 7, TranspositionTable.BOUND_LOWER, -12345, 27);
+        long entry = tt.probe(hash);
+        assertNotEquals(0, entry);
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+        assertEquals(-12345, TranspositionTable.getScore(entry));
+        assertEquals(27, TranspositionTable.getMove(entry));
+
+        // 最善手なしで上書きしても前の手は残る
+        tt.store(hash, 8, TranspositionTable.BOUND_UPPER, 100, TranspositionTable.NO_MOVE);
+        entry = tt.probe(hash);
+        assertEquals(8, TranspositionTable.getDepth(entry));
+        assertEquals(27, TranspositionTable.getMove(entry));
+
+        // 同じバケットの別の局面とは区別する
+        assertEquals(0, tt.probe(hash ^ (1L << 62)));
+    }
+
+    @Test
+    public void testDepthPreferredReplacement() {
+        TranspositionTable tt = new TranspositionTable(1);
+        // 添字に使われない上位ビットだけ変えて、同じバケットに入れる
+        long deep = 0x1000L;
+        long shallow1 = deep | (1L << 50);
+        long shallow2 = deep | (1L << 51);
+
+        // 深いエントリは同じ世代の浅いエントリで追い出されない
+        tt.store(deep, 10, TranspositionTable.BOUND_EXACT, 1, 0);
+        tt.store(shallow1, 2, TranspositionTable.BOUND_EXACT, 2, 1);
+        tt.store(shallow2, 3, TranspositionTable.BOUND_EXACT, 3, 2);
+        assertNotEquals(0, tt.probe(deep));
+        assertEquals(0, tt.probe(shallow1));
+        assertNotEquals(0, tt.probe(shallow2));
+
+        // 世代が変われば置き換えられる
+        tt.newSearch();
+        tt.store(shallow1, 2, TranspositionTable.BOUND_EXACT, 2, 1);
+        assertEquals(0, tt.probe(deep));
+        assertNotEquals(0, tt.probe(shallow1));
+    }
+}
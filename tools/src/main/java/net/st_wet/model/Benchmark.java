@@ -0,0 +1,200 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * 速度の参考値を測るツール（単体テストでは測らない。結果はマシンで変わる）
+ *
+ * 使い方：./gradlew :tools:benchmark --args="名前"
+ *   flips     着手で返る石の計算（Board.calcFlips）の速さ
+ *   parallel  ルート並列探索：スレッド数ごとの、0.5 秒でのノード数／秒と完了した深さ（コア数が 1 なら差は出ない）
+ *   lazysmp   Lazy SMP：同じく 1, 2, 4, 8 スレッドで
+ *   solve     空きマス数ごとのルートの読み切り（反復深化）の時間とノード数（勝敗だけなら石差よりずっと速い）
+ *   time      時間配分つきの Lv.3 探索（上限 2 秒）で、実際に使った時間と完了した深さ
+ *   fastest   完全読みで速さ優先に並べる空きマス数の下限ごとのノード数と時間（EndgameSolver.DEFAULT_FASTEST_FIRST_EMPTIES を決める）
+ */
+public class Benchmark
+{
+    public static void main(String[] args) {
+        String name = (args.length > 0) ? args[0] : "";
+        switch (name) {
+            case "flips":
+                flips();
+                break;
+            case "parallel":
+                parallelSearch(SearchEngine.ParallelMode.ROOT_SPLIT, 8, 3);
+                break;
+            case "lazysmp":
+                parallelSearch(SearchEngine.ParallelMode.LAZY_SMP, 11, 2);
+                break;
+            case "solve":
+                solve();
+                break;
+            case "fastest":
+                fastestFirst();
+                break;
+            case "time":
+                timeManager();
+                break;
+            default:
+                System.err.println("usage: Benchmark flips|parallel|lazysmp|solve|fastest|time");
+                System.exit(2);
+        }
+    }
+
+    /**
+     * ランダムな石の配置の全マスで calcFlips を呼ぶ
+     */
+    private static void flips() {
+        Random rand = new Random(5);
+        int n = 2000;
+        long[] owns = new long[n];
+        long[] opps = new long[n];
+        for (int i = 0; i < n; i++) {
+            long occupied = rand.nextLong() | rand.nextLong();
+            owns[i] = occupied & rand.nextLong();
+            opps[i] = occupied & ~owns[i];
+        }
+        for (int round = 0; round < 5; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                for (int sq = 0; sq < Board.ROWS * Board.COLS; sq++) {
+                    sink += Board.calcFlips(owns[i], opps[i], sq);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long count = (long) n * Board.ROWS * Board.COLS;
+            System.out.println("flips/sec: " + (count * 1000000000L / Math.max(1, elapsed)) + " (" + (sink & 1) + ")");
+        }
+    }
+
+    /**
+     * 中盤の局面を 0.5 秒ずつ探索し、スレッド数で比べる（ルート並列は 1 と全コア（2 以上）、Lazy SMP は 1〜8）
+     */
+    private static void parallelSearch(SearchEngine.ParallelMode mode, long seed, int count) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = (mode == SearchEngine.ParallelMode.LAZY_SMP)
+                ? new int[]{1, 2, 4, 8}
+                : new int[]{1, Math.max(2, cores)};
+        ArrayList<Board> positions = createPositions(seed, count, 36);
+        for (int t : threadCounts) {
+            long nodes = 0;
+            long elapsed = 0;
+            int depthSum = 0;
+            for (Board board : positions) {
+                SearchEngine engine = new SearchEngine(16);
+                engine.setThreads(t);
+                engine.setParallelMode(mode);
+                MoveList moves = new MoveList();
+                board.getMoves(board.getTurn(), moves);
+                long start = System.nanoTime();
+                engine.startSearch(500);
+                engine.iterativeDeepening(board.clone(), moves, 60, SearchEngine.EndgameMode.NONE);
+                elapsed += System.nanoTime() - start;
+                nodes += engine.getNodeCount();
+                depthSum += engine.getCompletedDepth();
+            }
+            System.out.println(mode + " threads=" + t + " nodes/sec: " + (nodes * 1000000000L / Math.max(1, elapsed))
+                    + ", average depth: " + ((double) depthSum / positions.size()));
+        }
+    }
+
+    /**
+     * 14〜22 空きの局面を勝敗だけ・石差まで読み切る（石差は 20 空きまで）
+     */
+    private static void solve() {
+        for (int empties : new int[]{14, 16, 18, 20, 22}) {
+            ArrayList<Board> positions = createPositions(24, 3, empties);
+            for (SearchEngine.EndgameMode mode : new SearchEngine.EndgameMode[]{SearchEngine.EndgameMode.WLD, SearchEngine.EndgameMode.EXACT}) {
+                if (mode == SearchEngine.EndgameMode.EXACT && empties > 20) {
+                    continue;
+                }
+                long nodes = 0;
+                long elapsed = 0;
+                for (Board board : positions) {
+                    SearchEngine engine = new SearchEngine(16);
+                    MoveList moves = new MoveList();
+                    board.getMoves(board.getTurn(), moves);
+                    long start = System.nanoTime();
+                    engine.startSearch(60000);
+                    engine.iterativeDeepening(board.clone(), moves, 0, mode);
+                    elapsed += System.nanoTime() - start;
+                    nodes += engine.getNodeCount();
+                }
+                System.out.println(mode + " " + empties + " empties: " + (elapsed / 1000000 / positions.size())
+                        + " ms, " + (nodes / positions.size()) + " nodes");
+            }
+        }
+    }
+
+    /**
+     * 16 空きの局面を、速さ優先の下限を変えて完全読みする（最初は速さ優先なし）
+     */
+    private static void fastestFirst() {
+        final int noFastestFirst = Board.ROWS * Board.COLS + 1;
+        ArrayList<Board> positions = createPositions(25, 10, 16);
+        for (int threshold : new int[]{noFastestFirst, 5, 6, 7, 8, 10, 12}) {
+            long nodes = 0;
+            long start = System.nanoTime();
+            for (Board board : positions) {
+                SearchEngine engine = new SearchEngine(16);
+                engine.setFastestFirstEmpties(threshold);
+                engine.startSearch(60000);
+                engine.solve(board.clone(), -SearchEngine.INF, SearchEngine.INF);
+                nodes += engine.getNodeCount();
+            }
+            String label = (threshold == noFastestFirst) ? "no fastest-first" : "fastest-first from " + threshold + " empties";
+            System.out.println(label + ": " + nodes + " nodes, " + ((System.nanoTime() - start) / 1000000) + " ms");
+        }
+    }
+
+    /**
+     * 序盤・中盤の局面を TimeManager の配分で探索する
+     */
+    private static void timeManager() {
+        TimeManager tm = new TimeManager(2000);
+        for (int empties : new int[]{50, 40, 30}) {
+            for (Board board : createPositions(15, 3, empties)) {
+                SearchEngine engine = new SearchEngine(16);
+                MoveList moves = new MoveList();
+                board.getMoves(board.getTurn(), moves);
+                tm.start(empties, moves.size());
+                engine.startSearch(tm);
+                engine.iterativeDeepening(board.clone(), moves, 60, SearchEngine.EndgameMode.NONE);
+                System.out.println(empties + " empties, " + moves.size() + " moves: " + tm.getElapsedMs() + " ms (soft "
+                        + tm.getSoftLimitMs() + ", hard " + tm.getHardLimitMs() + "), depth " + engine.getCompletedDepth());
+            }
+        }
+    }
+
+    /**
+     * 初期局面からランダムに打ち進めた、空きマスが empties の局面（手番側に合法手がある）
+     */
+    static ArrayList<Board> createPositions(long seed, int count, int empties) {
+        Random rand = new Random(seed);
+        ArrayList<Board> positions = new ArrayList<>();
+        MoveList moves = new MoveList();
+        while (positions.size() < count) {
+            Board board = new Board();
+            while (board.getStatusCount(E_STATUS.None) > empties) {
+                board.getMoves(board.getTurn(), moves);
+                if (moves.size() == 0) {
+                    if (!board.isCanPutAll(board.getOppositeTurn())) {
+                        break;
+                    }
+                    board.changeTurn();
+                    continue;
+                }
+                board.makeMove(moves.get(rand.nextInt(moves.size())));
+            }
+            if (board.getStatusCount(E_STATUS.None) == empties && board.isCanPutAll(board.getTurn())) {
+                positions.add(board.clone());
+            }
+        }
+        return positions;
+    }
+}
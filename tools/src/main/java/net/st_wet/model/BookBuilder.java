@@ -0,0 +1,418 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 定石を作るツール（JVM のコマンドラインで動かす。アプリには入らない）
+ *
+ * 初期局面から木を広げ、末端は深い探索で評価し、評価値を negamax で根まで戻す
+ * どの末端を広げるかは drop-out expansion で決める
+ *   根からの道筋での「最善手との評価値の差」の合計 + 手数 × 1 手のコスト が小さい末端から広げる
+ *   （最善に近い本線ほど深く、悪手の先は浅くなる）
+ * 末端の評価は全コアで並列に行う（スレッドごとに SearchEngine を持つ）
+ * 途中経過はチェックポイントファイルに保存し、同じコマンドで続きから再開できる
+ *
+ * 使い方：./gradlew :tools:run --args="[オプション] チェックポイント 定石ファイル"（パスはプロジェクトのルートから）
+ *   -n 広げる局面数（既定 100000）  -d 末端の探索深さ（既定 12）  -t スレッド数（既定 全コア）
+ *   -p 広げる最大の手数（既定 24）   -c 1 手あたりのコスト（既定 200 = 石 2 個）
+ * 定石ファイルは app/src/main/assets/book.bin に置く
+ */
+public class BookBuilder
+{
+    private static final int CHECKPOINT_MAGIC = 0x4F424331;  // "OBC1"
+    private static final long CHECKPOINT_INTERVAL_MS = 60000;
+    private static final long EVAL_TIME_LIMIT_MS = 3600000;   // 末端の探索は深さで止める（時間では止めない）
+    private static final int HASH_SIZE_MB = 64;               // スレッドごとの置換表
+    private static final int BATCH_PER_THREAD = 4;            // 1 回に広げる末端の数（スレッドあたり）
+    private static final int INITIAL_DISCS = 4;
+
+    /**
+     * 局面（正規形。own が手番側の石）
+     */
+    private static final class Node
+    {
+        final long own;
+        final long opp;
+        final int discs;
+        int value;          // 手番側から見た評価値（末端は探索値、広げた局面は子からの negamax）
+        int[] moves;        // 広げた局面の手（正規形の向き）。末端なら null
+        Node[] children;
+        long priority;      // drop-out のコスト（広げる回ごとに計算し直す）
+
+        Node(long own, long opp, int value) {
+            this.own = own;
+            this.opp = opp;
+            this.discs = Long.bitCount(own | opp);
+            this.value = value;
+        }
+    }
+
+    private final int evalDepth;
+    private final int maxPly;
+    private final int depthCost;
+
+    private final HashMap<Position, Node> nodes = new HashMap<>();
+    // 石の数ごとの局面（石の数は 1 手で 1 つ増えるので、少ない順に根から葉へ向かう）
+    private final ArrayList<ArrayList<Node>> layers = new ArrayList<>();
+    private Node root;
+    private int expandedCount;
+
+    private final ThreadLocal<SearchEngine> engines = new ThreadLocal<SearchEngine>() {
+        @Override
+        protected SearchEngine initialValue() {
+            return new SearchEngine(HASH_SIZE_MB);
+        }
+    };
+
+    /**
+     * @param evalDepth 末端の探索深さ
+     * @param maxPly 広げる最大の手数（初期局面から）
+     * @param depthCost 1 手あたりのコスト（評価値の単位）
+     */
+    public BookBuilder(int evalDepth, int maxPly, int depthCost) {
+        this.evalDepth = evalDepth;
+        this.maxPly = maxPly;
+        this.depthCost = depthCost;
+        for (int discs = 0; discs <= Board.ROWS * Board.COLS; discs++) {
+            this.layers.add(new ArrayList<Node>());
+        }
+    }
+
+    public int getNodeCount() {
+        return this.nodes.size();
+    }
+
+    public int getExpandedCount() {
+        return this.expandedCount;
+    }
+
+    /**
+     * 根（初期局面）の評価値（黒から見た値）
+     */
+    public int getRootValue() {
+        return this.root.value;
+    }
+
+    /**
+     * 末端を 1 回分（batch 個）広げる。根がなければ初期局面を評価して作る
+     * @return 広げた末端の数（広げられる末端がなければ 0）
+     */
+    public int expandRound(ExecutorService pool, int batch) throws InterruptedException {
+        if (this.root == null) {
+            Position key = rootKey();
+            addNode(key, evaluate(key));
+            this.root = this.nodes.get(key);
+        }
+
+        computePriorities();
+        ArrayList<Node> leaves = new ArrayList<>();
+        for (ArrayList<Node> layer : this.layers) {
+            for (Node node : layer) {
+                if (node.moves == null && node.priority != Long.MAX_VALUE && isExpandable(node)) {
+                    leaves.add(node);
+                }
+            }
+        }
+        Collections.sort(leaves, new Comparator<Node>() {
+            @Override
+            public int compare(Node a, Node b) {
+                return Long.compare(a.priority, b.priority);
+            }
+        });
+        if (leaves.size() > batch) {
+            leaves.subList(batch, leaves.size()).clear();
+        }
+        if (leaves.isEmpty()) {
+            return 0;
+        }
+
+        // まだ評価していない子をまとめて並列に評価する
+        LinkedHashMap<Position, Future<Integer>> pending = new LinkedHashMap<>();
+        for (Node leaf : leaves) {
+            long moves = Board.calcMobility(leaf.own, leaf.opp);
+            while (moves != 0) {
+                int sq = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                final Position key = childKey(leaf, sq);
+                if (!this.nodes.containsKey(key) && !pending.containsKey(key)) {
+                    pending.put(key, pool.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return evaluate(key);
+                        }
+                    }));
+                }
+            }
+        }
+        try {
+            for (Map.Entry<Position, Future<Integer>> e : pending.entrySet()) {
+                addNode(e.getKey(), e.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (Node leaf : leaves) {
+            link(leaf);
+        }
+        propagate();
+        return leaves.size();
+    }
+
+    /**
+     * 広げてよい末端：手数が上限未満で、手番側に打てる手がある
+     */
+    private boolean isExpandable(Node node) {
+        return node.discs - INITIAL_DISCS < this.maxPly && Board.calcMobility(node.own, node.opp) != 0;
+    }
+
+    /**
+     * 広げた局面に子をつなぐ（子はすべて評価済みであること）
+     */
+    private void link(Node node) {
+        long moves = Board.calcMobility(node.own, node.opp);
+        int n = Long.bitCount(moves);
+        node.moves = new int[n];
+        node.children = new Node[n];
+        for (int i = 0; i < n; i++) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            node.moves[i] = sq;
+            node.children[i] = this.nodes.get(childKey(node, sq));
+        }
+        this.expandedCount++;
+    }
+
+    private void addNode(Position key, int value) {
+        Node node = new Node(key.getBlack(), key.getWhite(), value);
+        this.nodes.put(key, node);
+        this.layers.get(node.discs).add(node);
+    }
+
+    /**
+     * drop-out のコストを根から葉へ計算する
+     */
+    private void computePriorities() {
+        for (ArrayList<Node> layer : this.layers) {
+            for (Node node : layer) {
+                node.priority = Long.MAX_VALUE;
+            }
+        }
+        this.root.priority = 0;
+        for (ArrayList<Node> layer : this.layers) {
+            for (Node node : layer) {
+                if (node.moves == null || node.priority == Long.MAX_VALUE) {
+                    continue;
+                }
+                for (Node child : node.children) {
+                    long cost = node.priority + this.depthCost + (node.value + child.value);
+                    child.priority = Math.min(child.priority, cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * 評価値を葉から根へ negamax で戻す
+     */
+    private void propagate() {
+        for (int discs = this.layers.size() - 1; discs >= 0; discs--) {
+            for (Node node : this.layers.get(discs)) {
+                if (node.moves == null) {
+                    continue;
+                }
+                int best = -SearchEngine.INF;
+                for (Node child : node.children) {
+                    best = Math.max(best, -child.value);
+                }
+                node.value = best;
+            }
+        }
+    }
+
+    /**
+     * 局面を深さ evalDepth で探索する（呼び出し元のスレッドの SearchEngine で）
+     * @return 手番側から見た評価値
+     */
+    private int evaluate(Position key) {
+        SearchEngine engine = this.engines.get();
+        Board board = new Board();
+        board.setPosition(key.withTurn(E_STATUS.Black));
+        MoveList moves = new MoveList();
+        board.getMoves(E_STATUS.Black, moves);
+        engine.startSearch(EVAL_TIME_LIMIT_MS);
+        if (moves.size() == 0) {
+            // パスや終局は search がそのまま扱う
+            return engine.search(board, this.evalDepth, -SearchEngine.INF, SearchEngine.INF);
+        }
+        return engine.iterativeDeepening(board, moves, this.evalDepth, SearchEngine.EndgameMode.NONE);
+    }
+
+    private static Position childKey(Node node, int sq) {
+        long flips = Board.calcFlips(node.own, node.opp, sq);
+        return canonicalKey(node.opp & ~flips, node.own | flips | (1L << sq));
+    }
+
+    private static Position rootKey() {
+        Board board = new Board();
+        E_STATUS turn = board.getTurn();
+        return canonicalKey(board.getStones(turn), board.getStones(Cell.getOppositeStatus(turn)));
+    }
+
+    /**
+     * 局面のキー：正規形の (手番側, 相手) を Position の (黒, 白) に入れる
+     */
+    private static Position canonicalKey(long own, long opp) {
+        return new Position(own, opp, E_STATUS.None).canonical();
+    }
+
+    /**
+     * 定石を書き出す（広げた局面の手をすべて。評価値は手番側から見た、打ったあとの値）
+     */
+    public void writeBook(OutputStream out) throws IOException {
+        List<OpeningBook.Entry> entries = new ArrayList<>();
+        for (ArrayList<Node> layer : this.layers) {
+            for (Node node : layer) {
+                if (node.moves == null) {
+                    continue;
+                }
+                for (int i = 0; i < node.moves.length; i++) {
+                    int score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, -node.children[i].value));
+                    entries.add(new OpeningBook.Entry(node.own, node.opp, node.moves[i], score));
+                }
+            }
+        }
+        OpeningBook.write(entries, out);
+    }
+
+    /**
+     * チェックポイントを書き出す（一時ファイルに書いてから置き換える）
+     * 形式：マジック "OBC1" + 局面数 + 局面ごとに 手番側 8 バイト・相手 8 バイト・評価値 4 バイト・広げたか 1 バイト
+     */
+    public void saveCheckpoint(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(this.nodes.size());
+            for (ArrayList<Node> layer : this.layers) {
+                for (Node node : layer) {
+                    out.writeLong(node.own);
+                    out.writeLong(node.opp);
+                    out.writeInt(node.value);
+                    out.writeByte(node.moves != null ? 1 : 0);
+                }
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("cannot replace " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("cannot rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * チェックポイントから続きを読み込む
+     */
+    public void loadCheckpoint(File file) throws IOException {
+        ArrayList<Node> expanded = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("not a book checkpoint: " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long own = in.readLong();
+                long opp = in.readLong();
+                int value = in.readInt();
+                boolean isExpanded = in.readByte() != 0;
+                Position key = new Position(own, opp, E_STATUS.None);
+                addNode(key, value);
+                if (isExpanded) {
+                    expanded.add(this.nodes.get(key));
+                }
+            }
+        }
+        for (Node node : expanded) {
+            link(node);
+        }
+        this.root = this.nodes.get(rootKey());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int target = 100000;
+        int evalDepth = 12;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPly = 24;
+        int depthCost = 200;
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "-n": target = value; break;
+                case "-d": evalDepth = value; break;
+                case "-t": threads = value; break;
+                case "-p": maxPly = value; break;
+                case "-c": depthCost = value; break;
+                default: throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        if (args.length - i != 2) {
+            System.err.println("usage: BookBuilder [-n positions] [-d depth] [-t threads] [-p maxPly] [-c depthCost] checkpoint book.bin");
+            System.exit(2);
+        }
+        File checkpoint = new File(args[i]);
+        File bookFile = new File(args[i + 1]);
+
+        BookBuilder builder = new BookBuilder(evalDepth, maxPly, depthCost);
+        if (checkpoint.exists()) {
+            builder.loadCheckpoint(checkpoint);
+            System.out.println("resumed: " + builder.getNodeCount() + " positions, " + builder.getExpandedCount() + " expanded");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+        long lastSave = start;
+        try {
+            while (builder.getExpandedCount() < target && builder.expandRound(pool, threads * BATCH_PER_THREAD) > 0) {
+                long now = System.currentTimeMillis();
+                if (now - lastSave >= CHECKPOINT_INTERVAL_MS) {
+                    builder.saveCheckpoint(checkpoint);
+                    lastSave = now;
+                    System.out.println(builder.getExpandedCount() + " expanded, " + builder.getNodeCount() + " positions, root "
+                            + builder.getRootValue() + ", " + ((now - start) / 1000) + " s");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        builder.saveCheckpoint(checkpoint);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(bookFile))) {
+            builder.writeBook(out);
+        }
+        System.out.println("wrote " + bookFile + ": " + builder.getExpandedCount() + " positions, root " + builder.getRootValue());
+    }
+}
@@ -0,0 +1,140 @@
+package net.st_wet.model;
+
+import net.st_wet.model.Cell.E_STATUS;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Multi-ProbCut の係数（ProbCut.PARAMS）を求め直すツール
+ *
+ * 自己対戦の局面を段階ごとに集め、深さ 1〜MAX_DEPTH の全幅の探索値から、浅い深さと深い深さの組ごとに回帰する
+ * 出力は ProbCut.PARAMS の形なので、そのまま貼る
+ *
+ * 使い方：./gradlew :tools:fitProbCut --args="段階ごとの局面数"（既定 100。いまの係数は 400）
+ */
+public class ProbCutFitter
+{
+    private static final long TIME_LIMIT_MS = 600000;
+    private static final long SEED = 41;
+
+    /**
+     * 自己対戦の局面で係数を求め、ProbCut.PARAMS の形で出力する
+     */
+    public static void main(String[] args) {
+        int perStage = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int stages = ProbCut.stageCount();
+        ArrayList<ArrayList<Board>> positions = selfPlayPositions(SEED, perStage);
+
+        StringBuilder out = new StringBuilder();
+        for (int stage = 0; stage < stages; stage++) {
+            // 局面ごとに深さ 1〜MAX_DEPTH の値（全幅の窓・枝刈りなし）
+            ArrayList<Board> list = positions.get(stage);
+            int[][] values = new int[list.size()][ProbCut.MAX_DEPTH + 1];
+            for (int i = 0; i < list.size(); i++) {
+                SearchEngine engine = new SearchEngine(16);
+                engine.setUseProbCut(false);
+                engine.startSearch(TIME_LIMIT_MS);
+                for (int depth = 1; depth <= ProbCut.MAX_DEPTH; depth++) {
+                    values[i][depth] = engine.search(list.get(i).clone(), depth, -SearchEngine.INF, SearchEngine.INF);
+                }
+            }
+
+            out.append("            {   // 段階 ").append(stage).append('\n');
+            for (int depth = ProbCut.MIN_DEPTH; depth <= ProbCut.MAX_DEPTH; depth++) {
+                out.append("                {");
+                for (int check = 0; check < ProbCut.CHECKS; check++) {
+                    int shallow = ProbCut.shallowDepth(depth, check);
+                    int[] p = (shallow == 0) ? new int[]{0, 0, 0} : regress(values, shallow, depth);
+                    out.append(check == 0 ? "" : ", ").append('{').append(p[0]).append(", ").append(p[1]).append(", ").append(p[2]).append('}');
+                }
+                out.append("},  // ").append(depth).append('\n');
+            }
+            out.append("            },\n");
+        }
+        System.out.print(out);
+    }
+
+    /**
+     * v_depth ≈ a * v_shallow + b の最小二乗
+     * @return {a × 1000, b, 残差の標準偏差}
+     */
+    private static int[] regress(int[][] values, int shallow, int depth) {
+        int n = values.length;
+        double mx = 0;
+        double my = 0;
+        for (int[] v : values) {
+            mx += v[shallow];
+            my += v[depth];
+        }
+        mx /= n;
+        my /= n;
+        double sxx = 0;
+        double sxy = 0;
+        for (int[] v : values) {
+            sxx += (v[shallow] - mx) * (v[shallow] - mx);
+            sxy += (v[shallow] - mx) * (v[depth] - my);
+        }
+        double a = sxy / sxx;
+        double b = my - a * mx;
+        double see = 0;
+        for (int[] v : values) {
+            double e = v[depth] - (a * v[shallow] + b);
+            see += e * e;
+        }
+        return new int[]{(int) Math.round(a * 1000), (int) Math.round(b), (int) Math.round(Math.sqrt(see / n))};
+    }
+
+    /**
+     * 自己対戦（浅い探索の最善手、ときどきランダム）で、段階ごとに局面を集める
+     */
+    private static ArrayList<ArrayList<Board>> selfPlayPositions(long seed, int perStage) {
+        Random rand = new Random(seed);
+        int stages = ProbCut.stageCount();
+        ArrayList<ArrayList<Board>> positions = new ArrayList<>();
+        for (int stage = 0; stage < stages; stage++) {
+            positions.add(new ArrayList<Board>());
+        }
+        SearchEngine engine = new SearchEngine(4);
+        engine.setUseProbCut(false);
+        MoveList moves = new MoveList();
+
+        boolean full = false;
+        while (!full) {
+            Board board = new Board();
+            while (board.getStatusCount(E_STATUS.None) > 20) {
+                board.getMoves(board.getTurn(), moves);
+                if (moves.size() == 0) {
+                    if (!board.isCanPutAll(board.getOppositeTurn())) {
+                        break;
+                    }
+                    board.changeTurn();
+                    continue;
+                }
+
+                // 1 局から 1 段階につき数局面だけ、間引いて取る
+                ArrayList<Board> list = positions.get(ProbCut.stage(board.getStatusCount(E_STATUS.None)));
+                if (list.size() < perStage && rand.nextInt(4) == 0) {
+                    list.add(board.clone());
+                }
+
+                int sq;
+                if (rand.nextInt(100) < 20) {
+                    sq = moves.get(rand.nextInt(moves.size()));
+                } else {
+                    engine.startSearch(TIME_LIMIT_MS);
+                    engine.iterativeDeepening(board.clone(), moves, 2, SearchEngine.EndgameMode.NONE);
+                    MoveList best = engine.getBestMoves();
+                    sq = best.get(rand.nextInt(best.size()));
+                }
+                board.makeMove(sq);
+            }
+
+            full = true;
+            for (ArrayList<Board> list : positions) {
+                full &= (list.size() >= perStage);
+            }
+        }
+        return positions;
+    }
+}
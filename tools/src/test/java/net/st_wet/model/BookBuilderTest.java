@@ -0,0 +1,85 @@
+package net.st_wet.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * BookBuilder（定石を作るツール）の単体テスト
+ */
+public class BookBuilderTest {
+
+    @Test
+    public void testBookFollowsNegamax() throws Exception {
+        // 作った定石の初期局面の最善手の評価値が、根の評価値と一致し、定石の手はすべて合法
+        BookBuilder builder = new BookBuilder(2, 6, 200);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            while (builder.getExpandedCount() < 50) {
+                assertTrue(builder.expandRound(pool, 8) > 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        OpeningBook book = toBook(builder);
+
+        Board board = new Board();
+        MoveList moves = new MoveList();
+        assertTrue(book.lookup(board, moves));
+        assertEquals(builder.getRootValue(), moves.getScore(0));
+        assertEquals(Long.bitCount(board.getMobility(board.getTurn())), moves.size());
+
+        // 最善手を打ち進めても定石の中にいて、評価値は手番が替わるごとに符号が反転する
+        int expected = moves.getScore(0);
+        for (int ply = 0; ply < 3; ply++) {
+            board.makeMove(moves.get(0));
+            assertTrue(book.lookup(board, moves));
+            assertEquals(-expected, moves.getScore(0));
+            expected = moves.getScore(0);
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        File file = File.createTempFile("book", ".ckpt");
+        file.deleteOnExit();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            BookBuilder builder = new BookBuilder(2, 6, 200);
+            while (builder.getExpandedCount() < 20) {
+                builder.expandRound(pool, 4);
+            }
+            builder.saveCheckpoint(file);
+
+            // 読み込んだ木は保存したものと同じ定石になり、続きを広げられる
+            BookBuilder resumed = new BookBuilder(2, 6, 200);
+            resumed.loadCheckpoint(file);
+            assertEquals(builder.getNodeCount(), resumed.getNodeCount());
+            assertEquals(builder.getExpandedCount(), resumed.getExpandedCount());
+            assertEquals(builder.getRootValue(), resumed.getRootValue());
+            assertArrayEquals(toBytes(builder), toBytes(resumed));
+
+            assertTrue(resumed.expandRound(pool, 4) > 0);
+            assertTrue(resumed.getExpandedCount() > builder.getExpandedCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static OpeningBook toBook(BookBuilder builder) throws IOException {
+        return new OpeningBook(ByteBuffer.wrap(toBytes(builder)));
+    }
+
+    private static byte[] toBytes(BookBuilder builder) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.writeBook(out);
+        return out.toByteArray();
+    }
+}